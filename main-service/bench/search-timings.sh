@@ -0,0 +1,37 @@
+#!/bin/sh
+# Время публичного поиска событий на базе из seed-events.sql: прежний ilike и tsvector в SQL,
+# затем GET /events через запущенный main-service.
+#   PGDATABASE=ewm EWM_URL=http://localhost:8080 main-service/bench/search-timings.sh
+# Подключение к базе берется из стандартных переменных PGHOST, PGPORT, PGUSER, PGDATABASE.
+set -eu
+
+EWM_URL=${EWM_URL:-http://localhost:8080}
+RUNS=${RUNS:-5}
+# 202cb96 встречается примерно в 2,4% событий, zzzqq нет ни в одном.
+WORDS=${WORDS:-"202cb96 zzzqq"}
+PUBLISHED="FROM events e WHERE e.state = 'PUBLISHED' AND e.event_date >= now()"
+
+sql_ms() {
+    psql -X -q -t -A -c "EXPLAIN (ANALYZE) $1" | sed -n 's/^Execution Time: \(.*\) ms$/\1/p'
+}
+
+api_ms() {
+    curl -s -o /dev/null "$EWM_URL/events?$1"
+    i=0
+    while [ "$i" -lt "$RUNS" ]; do
+        curl -s -o /dev/null -w '%{time_total}\n' "$EWM_URL/events?$1"
+        i=$((i + 1))
+    done | awk '{ total += $1 } END { printf "%.0f", total * 1000 / NR }'
+}
+
+psql -X -q -c "ANALYZE events" > /dev/null
+for word in $WORDS; do
+    echo "== $word"
+    printf 'sql ilike, first 10:        %s ms\n' "$(sql_ms "SELECT e.id $PUBLISHED
+        AND (e.annotation ILIKE '%$word%' OR e.description ILIKE '%$word%') ORDER BY e.id LIMIT 10")"
+    printf 'sql fts, first 10 by id:    %s ms\n' "$(sql_ms "SELECT e.id $PUBLISHED
+        AND e.search @@ to_tsquery('simple', '$word:*') ORDER BY e.id LIMIT 10")"
+    for sort in "" "&sort=EVENT_DATE" "&sort=RELEVANCE" "&sort=VIEWS"; do
+        printf 'api text=%s%s: %s ms\n' "$word" "$sort" "$(api_ms "text=$word$sort")"
+    done
+done
@@ -0,0 +1,42 @@
+-- Миллион опубликованных событий для замеров публичного поиска (/events?text=...).
+-- Запускать на пустой базе, в которой main-service уже создал схему:
+--   psql -v ON_ERROR_STOP=1 -d ewm -f main-service/bench/seed-events.sql
+-- Словарь из 5000 слов substr(md5(n), 1, 4 + n % 6) распределен равномерно: каждое слово есть примерно
+-- в 2,4% событий (например, 202cb96 - слово n = 123). Каждое 50-е событие получает в заголовок
+-- уникальное слово, как редкие слова в настоящем тексте. Слова zzzqq в словаре нет.
+
+INSERT INTO categories (name)
+SELECT 'bench-' || i
+FROM generate_series(1, 20) i;
+
+INSERT INTO users (name, email)
+VALUES ('bench', 'bench@example.com');
+
+INSERT INTO locations (lat, lon)
+VALUES (55.75, 37.61);
+
+INSERT INTO events (annotation, category_id, confirmed_requests, created_on, description, event_date, user_id,
+                    location_id, paid, participant_limit, published_on, request_moderation, state, title, views)
+SELECT array_to_string(array(SELECT substr(md5(n::text), 1, 4 + n % 6)
+                             FROM (SELECT 1 + (g * 7 + k * 7919) % 5000 n FROM generate_series(1, 20) k) w), ' '),
+       (SELECT MIN(id) FROM categories) + g % 20,
+       0,
+       now(),
+       array_to_string(array(SELECT substr(md5(n::text), 1, 4 + n % 6)
+                             FROM (SELECT 1 + (g * 31 + k * 7877 + (g % 97) * k) % 5000 n
+                                   FROM generate_series(1, 100) k) w), ' '),
+       now() + (g % 365) * INTERVAL '1 day',
+       (SELECT MIN(id) FROM users),
+       (SELECT MIN(id) FROM locations),
+       g % 2 = 0,
+       0,
+       now(),
+       FALSE,
+       'PUBLISHED',
+       array_to_string(array(SELECT substr(md5(n::text), 1, 4 + n % 6)
+                             FROM unnest(array [1 + g % 5000, 1 + (g * 13) % 5000, 1 + (g * 17) % 5000]) n), ' ')
+           || CASE WHEN g % 50 = 0 THEN ' ' || md5(g::text || 'rare') ELSE '' END,
+       g % 1000
+FROM generate_series(1, 1000000) g;
+
+ANALYZE events;
@@ -0,0 +1,36 @@
+package ru.practicum.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import ru.practicum.service.event.StaleViews;
+
+/**
+ * Помечает ответ заголовком Warning, если просмотры в нем могут быть устаревшими.
+ */
+@RestControllerAdvice
+public class StaleViewsAdvice implements ResponseBodyAdvice<Object> {
+    private static final String STALE_WARNING = "110 main-service \"Views may be stale\"";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && servletRequest.getServletRequest().getAttribute(StaleViews.ATTRIBUTE) != null) {
+            response.getHeaders().add(HttpHeaders.WARNING, STALE_WARNING);
+        }
+        return body;
+    }
+}
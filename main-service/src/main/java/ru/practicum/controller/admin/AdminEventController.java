@@ -1,11 +1,14 @@
 package ru.practicum.controller.admin;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.event.EventFullDto;
+import ru.practicum.dto.event.EventPage;
 import ru.practicum.dto.event.UpdateEventAdminRequest;
+import ru.practicum.model.Constants;
 import ru.practicum.service.event.EventService;
 
 import java.util.Collection;
@@ -32,10 +35,17 @@ public class AdminEventController {
                                               @RequestParam(required = false) List<Long> categories,
                                               @RequestParam(required = false) String rangeStart,
                                               @RequestParam(required = false) String rangeEnd,
+                                              @RequestParam(required = false) String cursor,
                                               @RequestParam(defaultValue = "0") Integer from,
-                                              @RequestParam(defaultValue = "10") Integer size
+                                              @RequestParam(defaultValue = "10") Integer size,
+                                              HttpServletResponse response
     ) {
         log.info("Получен HTTP-запрос на получение всех события для admin");
-        return eventService.findEventsByAdmin(users, states, categories, rangeStart, rangeEnd, from, size);
+        EventPage<EventFullDto> page = eventService.findEventsByAdmin(users, states, categories, rangeStart, rangeEnd,
+                cursor, from, size);
+        if (page.getNextCursor() != null) {
+            response.setHeader(Constants.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return page.getEvents();
     }
 }
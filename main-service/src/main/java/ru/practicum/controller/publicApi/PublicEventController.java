@@ -1,11 +1,15 @@
 package ru.practicum.controller.publicApi;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.event.EventFullDto;
+import ru.practicum.dto.event.EventPage;
 import ru.practicum.dto.event.EventShortDto;
+import ru.practicum.dto.event.EventSuggestionDto;
+import ru.practicum.model.Constants;
 import ru.practicum.service.event.EventService;
 
 import java.util.Collection;
@@ -20,6 +24,13 @@ public class PublicEventController {
     private final EventService eventService;
 
 
+    @GetMapping("/suggest")
+    public List<EventSuggestionDto> suggestEvents(@RequestParam(defaultValue = "") String q,
+                                                  @RequestParam(defaultValue = "10") Integer size) {
+        log.debug("Получен HTTP-запрос на подсказки событий: {}", q);
+        return eventService.suggestEvents(q, size);
+    }
+
     @GetMapping("/{eventId}")
     public EventFullDto getEventById(@PathVariable Long eventId, HttpServletRequest request) {
         log.info("Получен HTTP-запрос на получение события с Id: {} public", eventId);
@@ -34,11 +45,17 @@ public class PublicEventController {
                                                @RequestParam(required = false) String rangeEnd,
                                                @RequestParam(defaultValue = "false") Boolean onlyAvailable,
                                                @RequestParam(required = false) String sort,
+                                               @RequestParam(required = false) String cursor,
                                                @RequestParam(defaultValue = "0") Integer from,
                                                @RequestParam(defaultValue = "10") Integer size,
-                                               HttpServletRequest request) {
+                                               HttpServletRequest request,
+                                               HttpServletResponse response) {
         log.info("Получен HTTP-запрос на получение всех события для public");
-        return eventService.findEventsByPublic(text, categories, paid, rangeStart, rangeEnd,
-                onlyAvailable, sort, from, size, request);
+        EventPage<EventShortDto> page = eventService.findEventsByPublic(text, categories, paid, rangeStart, rangeEnd,
+                onlyAvailable, sort, cursor, from, size, request);
+        if (page.getNextCursor() != null) {
+            response.setHeader(Constants.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return page.getEvents();
     }
 }
@@ -1,12 +1,28 @@
 package ru.practicum.dal;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.model.Compilation;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
 
-    List<Compilation> findAllByPinned(Boolean pinned, Pageable pageable);
+    @Query("""
+            SELECT c.id
+            FROM Compilation as c
+            WHERE (:pinned IS NULL OR c.pinned = :pinned)
+            ORDER BY c.id
+            """)
+    List<Long> findIds(Boolean pinned, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"events", "events.category", "events.initiator"})
+    List<Compilation> findAllByIdInOrderById(List<Long> ids);
+
+    @Override
+    @EntityGraph(attributePaths = {"events", "events.category", "events.initiator"})
+    Optional<Compilation> findById(Long id);
 }
@@ -0,0 +1,54 @@
+package ru.practicum.dal;
+
+import ru.practicum.model.enums.EventSort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Позиция в списке событий для постраничного вывода по ключу: ключ сортировки и id последнего события
+ * страницы. sort == null означает порядок по id. Клиенту передается непрозрачной строкой.
+ */
+public record EventCursor(EventSort sort, LocalDateTime eventDate, long views, long id) {
+    private static final String SEPARATOR = "|";
+
+    public static EventCursor byId(long id) {
+        return new EventCursor(null, null, 0, id);
+    }
+
+    public static EventCursor byEventDate(LocalDateTime eventDate, long id) {
+        return new EventCursor(EventSort.EVENT_DATE, eventDate, 0, id);
+    }
+
+    public static EventCursor byViews(long views, long id) {
+        return new EventCursor(EventSort.VIEWS, null, views, id);
+    }
+
+    public String encode() {
+        String key = sort == EventSort.EVENT_DATE ? eventDate.toString()
+                : sort == EventSort.VIEWS ? String.valueOf(views) : "";
+        String value = (sort == null ? "" : sort.name()) + SEPARATOR + key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException    если строка не является курсором
+     * @throws java.time.DateTimeException если в курсоре некорректная дата
+     */
+    public static EventCursor decode(String token) {
+        String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", -1);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Некорректный курсор: " + token);
+        }
+        long id = Long.parseLong(parts[2]);
+        if (parts[0].isEmpty()) {
+            return byId(id);
+        }
+        return switch (EventSort.valueOf(parts[0])) {
+            case EVENT_DATE -> byEventDate(LocalDateTime.parse(parts[1]), id);
+            case VIEWS -> byViews(Long.parseLong(parts[1]), id);
+            default -> throw new IllegalArgumentException("Некорректный курсор: " + token);
+        };
+    }
+}
@@ -1,38 +1,46 @@
 package ru.practicum.dal;
 
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.model.Category;
 import ru.practicum.model.Event;
+import ru.practicum.model.EventShort;
+import ru.practicum.model.EventText;
+import ru.practicum.model.EventViews;
 import ru.practicum.model.enums.State;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface EventRepository extends JpaRepository<Event, Long> {
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
 
+public interface EventRepository extends JpaRepository<Event, Long>, EventSearchRepository {
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
     @Query("""
-            SELECT e
+            SELECT new ru.practicum.model.EventText(e.id, e.title, e.annotation)
             FROM Event as e
-            WHERE (:text IS NULL OR (e.annotation ilike %:text% OR e.description ilike %:text%))
-            AND (:categoryIds IS NULL OR e.category.id in :categoryIds)
-            AND (:paid IS NULL OR e.paid = :paid)
-            AND (e.eventDate >= :start)
-            AND (e.state = :state)
-            AND (:onlyAvailable = false OR e.participantLimit = 0 OR e.confirmedRequests <= e.participantLimit)
-            AND (CAST(:end AS DATE) IS NULL OR e.eventDate <= :end)
+            WHERE e.state = :state
+            """)
+    Stream<EventText> streamTextsByState(State state);
+
+    @Query("""
+            SELECT new ru.practicum.model.EventViews(e.id, e.views)
+            FROM Event as e
+            WHERE e.state = :state
             """)
-    List<Event> findAllByPublic(String text,
-                                      List<Long> categoryIds,
-                                      Boolean paid,
-                                      LocalDateTime start,
-                                      LocalDateTime end,
-                                      Boolean onlyAvailable,
-                                      State state,
-                                      Pageable pageable);
+    List<EventViews> findViewsByState(State state);
 
+    @EntityGraph(attributePaths = {"category", "initiator", "location"})
     @Query("""
             SELECT e
             FROM Event as e
@@ -41,21 +49,39 @@ public interface EventRepository extends JpaRepository<Event, Long> {
             AND (:categoryIds IS NULL OR e.category.id in :categoryIds)
             AND (CAST(:start AS DATE) IS NULL OR e.eventDate >= :start)
             AND (CAST(:end AS DATE) IS NULL OR e.eventDate <= :end)
+            AND (:afterId IS NULL OR e.id > :afterId)
+            ORDER BY e.id
             """)
     List<Event> findAllByFilter(List<Long> userIds,
                                 List<String> states,
                                 List<Long> categoryIds,
                                 LocalDateTime start,
                                 LocalDateTime end,
+                                Long afterId,
                                 Pageable pageable);
 
     @Query("""
-            SELECT e
+            SELECT new ru.practicum.model.EventShort(e.id, e.annotation, c.id, c.name, e.confirmedRequests,
+                e.eventDate, u.id, u.name, e.paid, e.title, e.views, e.createdOn)
             FROM Event as e
-            WHERE e.initiator.id = :userId
+            JOIN e.category as c
+            JOIN e.initiator as u
+            WHERE u.id = :userId
+            ORDER BY e.id
             """)
-    List<Event> findByUserId(Long userId, Pageable pageable);
+    List<EventShort> findShortByUserId(Long userId, Pageable pageable);
 
+    @Query("""
+            SELECT new ru.practicum.model.EventShort(e.id, e.annotation, c.id, c.name, e.confirmedRequests,
+                e.eventDate, u.id, u.name, e.paid, e.title, e.views, e.createdOn)
+            FROM Event as e
+            JOIN e.category as c
+            JOIN e.initiator as u
+            WHERE e.id IN :ids
+            """)
+    List<EventShort> findShortByIdIn(List<Long> ids);
+
+    @EntityGraph(attributePaths = {"category", "initiator", "location"})
     @Query("""
             SELECT e
             FROM Event as e
@@ -64,9 +90,26 @@ public interface EventRepository extends JpaRepository<Event, Long> {
             """)
     Optional<Event> findByIdAndUserId(Long eventId, Long userId);
 
+    @EntityGraph(attributePaths = {"category", "initiator", "location"})
     Optional<Event> findByInitiatorIdAndId(Long userId, Long eventId);
 
+    @Override
+    @EntityGraph(attributePaths = {"category", "initiator", "location"})
+    Optional<Event> findById(Long id);
+
     List<Event> findByCategory(Category category);
 
+    @EntityGraph(attributePaths = {"category", "initiator"})
     List<Event> findAllByIdIn(List<Long> ids);
-}
\ No newline at end of file
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "events"))
+    @Query(value = """
+            UPDATE events e
+            SET views = v.views
+            FROM unnest(CAST(:ids AS BIGINT[]), CAST(:views AS BIGINT[])) AS v(id, views)
+            WHERE e.id = v.id AND e.views IS DISTINCT FROM v.views
+            """, nativeQuery = true)
+    int updateViews(Long[] ids, Long[] views);
+}
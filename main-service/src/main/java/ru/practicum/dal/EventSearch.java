@@ -0,0 +1,19 @@
+package ru.practicum.dal;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Фильтр публичного поиска опубликованных событий; null означает отсутствие условия.
+ */
+public record EventSearch(String text,
+                          List<Long> categoryIds,
+                          Boolean paid,
+                          LocalDateTime start,
+                          LocalDateTime end,
+                          boolean onlyAvailable,
+                          List<Long> ids) {
+    public EventSearch withIds(List<Long> eventIds) {
+        return new EventSearch(text, categoryIds, paid, start, end, onlyAvailable, eventIds);
+    }
+}
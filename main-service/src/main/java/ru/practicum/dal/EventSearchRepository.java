@@ -0,0 +1,20 @@
+package ru.practicum.dal;
+
+import ru.practicum.model.enums.EventSort;
+
+import java.util.List;
+
+public interface EventSearchRepository {
+    int MATCH_LIMIT = 1000;
+
+    /**
+     * Идентификаторы опубликованных событий в порядке сортировки; при after != null страница начинается
+     * сразу после события курсора, offset при этом не применяется.
+     */
+    List<Long> findPublishedIds(EventSearch search, EventSort sort, EventCursor after, int offset, int limit);
+
+    /**
+     * Не больше limit идентификаторов опубликованных событий, подходящих под фильтр, в произвольном порядке.
+     */
+    List<Long> findPublishedMatches(EventSearch search, int limit);
+}
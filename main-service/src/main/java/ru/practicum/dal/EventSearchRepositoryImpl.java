@@ -0,0 +1,145 @@
+package ru.practicum.dal;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import ru.practicum.model.enums.EventSort;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Поиск по тексту идет по полю events.search (tsvector по title, annotation и description, индекс GIN)
+ * с конфигурацией simple: без стемминга, слово запроса от трех символов ищется как префикс слова события,
+ * более короткое - целиком; все слова должны присутствовать. Совпадение внутри слова, как у ilike %text%,
+ * не находится. Если совпадений меньше MATCH_LIMIT, страница сортируется только среди них.
+ */
+@RequiredArgsConstructor
+public class EventSearchRepositoryImpl implements EventSearchRepository {
+    private static final int MIN_PREFIX_LENGTH = 3;
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<Long> findPublishedIds(EventSearch search, EventSort sort, EventCursor after, int offset, int limit) {
+        if (isEmpty(search)) {
+            return List.of();
+        }
+        Filter filter = filter(search, after);
+        if (filter.query() != null && sort != EventSort.RELEVANCE) {
+            List<Long> matches = findMatches(filter, MATCH_LIMIT);
+            if (matches.size() < MATCH_LIMIT) {
+                if (matches.isEmpty()) {
+                    return List.of();
+                }
+                filter = new Filter("WHERE e.id IN (:matches)\n", new HashMap<>(Map.of("matches", matches)), null);
+            }
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT e.id\nFROM events e\n").append(filter.where());
+        if (sort == EventSort.RELEVANCE && filter.query() != null) {
+            sql.append("ORDER BY ts_rank_cd(e.search, to_tsquery('simple', :query)) DESC, e.id\n");
+        } else if (sort == EventSort.EVENT_DATE) {
+            sql.append("ORDER BY e.event_date DESC, e.id DESC\n");
+        } else {
+            sql.append("ORDER BY e.id\n");
+        }
+        sql.append("LIMIT :limit OFFSET :offset");
+        Map<String, Object> params = filter.params();
+        params.put("limit", limit);
+        params.put("offset", after != null ? 0 : offset);
+        return getResultList(sql.toString(), params);
+    }
+
+    @Override
+    public List<Long> findPublishedMatches(EventSearch search, int limit) {
+        if (isEmpty(search)) {
+            return List.of();
+        }
+        return findMatches(filter(search, null), limit);
+    }
+
+    /**
+     * Совпадения берутся из MATERIALIZED CTE: его план строится для выборки всех строк, поэтому слово
+     * ищется по индексу GIN, а внешний LIMIT останавливает чтение таблицы на limit строк. С LIMIT или
+     * ORDER BY e.id прямо в запросе планировщик ждет скорых совпадений и читает таблицу подряд или по
+     * первичному ключу, что для редкого слова означает полный просмотр.
+     */
+    private List<Long> findMatches(Filter filter, int limit) {
+        Map<String, Object> params = new HashMap<>(filter.params());
+        params.put("limit", limit);
+        return getResultList("WITH matches AS MATERIALIZED (\nSELECT e.id\nFROM events e\n" + filter.where()
+                + ")\nSELECT id\nFROM matches\nLIMIT :limit", params);
+    }
+
+    private static boolean isEmpty(EventSearch search) {
+        return search.categoryIds() != null && search.categoryIds().isEmpty()
+                || search.ids() != null && search.ids().isEmpty();
+    }
+
+    private static Filter filter(EventSearch search, EventCursor after) {
+        StringBuilder where = new StringBuilder("""
+                WHERE e.state = 'PUBLISHED'
+                AND e.event_date >= :start
+                """);
+        Map<String, Object> params = new HashMap<>();
+        params.put("start", search.start());
+        String query = toTsQuery(search.text());
+        if (query != null) {
+            where.append("AND e.search @@ to_tsquery('simple', :query)\n");
+            params.put("query", query);
+        }
+        if (search.categoryIds() != null) {
+            where.append("AND e.category_id IN (:categoryIds)\n");
+            params.put("categoryIds", search.categoryIds());
+        }
+        if (search.paid() != null) {
+            where.append("AND e.paid = :paid\n");
+            params.put("paid", search.paid());
+        }
+        if (search.end() != null) {
+            where.append("AND e.event_date <= :end\n");
+            params.put("end", search.end());
+        }
+        if (search.onlyAvailable()) {
+            where.append("AND (e.participant_limit = 0 OR e.confirmed_requests <= e.participant_limit)\n");
+        }
+        if (search.ids() != null) {
+            where.append("AND e.id IN (:ids)\n");
+            params.put("ids", search.ids());
+        }
+        if (after != null && after.sort() == EventSort.EVENT_DATE) {
+            where.append("AND (e.event_date, e.id) < (:afterDate, :afterId)\n");
+            params.put("afterDate", after.eventDate());
+            params.put("afterId", after.id());
+        } else if (after != null) {
+            where.append("AND e.id > :afterId\n");
+            params.put("afterId", after.id());
+        }
+        return new Filter(where.toString(), params, query);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> getResultList(String sql, Map<String, Object> params) {
+        Query nativeQuery = entityManager.createNativeQuery(sql, Long.class);
+        params.forEach(nativeQuery::setParameter);
+        return nativeQuery.getResultList();
+    }
+
+    private static String toTsQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+        String query = Arrays.stream(text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .map(word -> word.length() >= MIN_PREFIX_LENGTH ? word + ":*" : word)
+                .collect(Collectors.joining(" & "));
+        return query.isEmpty() ? null : query;
+    }
+
+    private record Filter(String where, Map<String, Object> params, String query) {
+    }
+}
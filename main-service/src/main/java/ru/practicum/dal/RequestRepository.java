@@ -2,6 +2,7 @@ package ru.practicum.dal;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import ru.practicum.model.EventRequestCount;
 import ru.practicum.model.Request;
 import ru.practicum.model.enums.RequestStatus;
 
@@ -12,7 +13,14 @@ public interface RequestRepository extends JpaRepository<Request, Long> {
 
     List<Request> findAllByRequesterId(Long userId);
 
-    List<Request> findAllByEventIdInAndStatus(List<Long> eventIds, RequestStatus status);
+    @Query("""
+            SELECT new ru.practicum.model.EventRequestCount(r.event.id, COUNT(r))
+            FROM Request r
+            WHERE r.event.id IN :eventIds
+            AND r.status = :status
+            GROUP BY r.event.id
+            """)
+    List<EventRequestCount> countByEventIdInAndStatus(List<Long> eventIds, RequestStatus status);
 
     @Query("""
             SELECT r
@@ -0,0 +1,16 @@
+package ru.practicum.dto.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Страница событий и курсор следующей страницы; курсора нет, если страница неполная.
+ */
+@Getter
+@AllArgsConstructor
+public class EventPage<T> {
+    private List<T> events;
+    private String nextCursor;
+}
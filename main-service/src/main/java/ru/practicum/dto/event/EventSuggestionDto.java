@@ -0,0 +1,14 @@
+package ru.practicum.dto.event;
+
+import lombok.*;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class EventSuggestionDto {
+    private Long id;
+    private String title;
+    private Long views;
+}
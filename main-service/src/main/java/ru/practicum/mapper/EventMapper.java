@@ -1,9 +1,12 @@
 package ru.practicum.mapper;
 
+import ru.practicum.dto.category.CategoryDto;
 import ru.practicum.dto.event.EventFullDto;
 import ru.practicum.dto.event.EventShortDto;
 import ru.practicum.dto.event.NewEventDto;
+import ru.practicum.dto.user.UserShortDto;
 import ru.practicum.model.Event;
+import ru.practicum.model.EventShort;
 
 public class EventMapper {
 
@@ -17,6 +20,21 @@ public class EventMapper {
                 .initiator(UserMapper.fromToShortDto(event.getInitiator()))
                 .paid(event.getPaid())
                 .title(event.getTitle())
+                .views(event.getViews())
+                .build();
+    }
+
+    public static EventShortDto toEventShortDto(EventShort event) {
+        return EventShortDto.builder()
+                .id(event.id())
+                .annotation(event.annotation())
+                .category(new CategoryDto(event.categoryId(), event.categoryName()))
+                .confirmedRequests(event.confirmedRequests())
+                .eventDate(event.eventDate())
+                .initiator(new UserShortDto(event.initiatorId(), event.initiatorName()))
+                .paid(event.paid())
+                .title(event.title())
+                .views(event.views())
                 .build();
     }
 
@@ -3,6 +3,8 @@ package ru.practicum.model;
 import java.time.format.DateTimeFormatter;
 
 public class Constants {
+    public static final String APP_NAME = "main-service";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     public static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
     public static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern(DATE_PATTERN);
 }
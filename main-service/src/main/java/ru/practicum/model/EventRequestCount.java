@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record EventRequestCount(Long eventId, Long count) {
+}
@@ -0,0 +1,20 @@
+package ru.practicum.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Поля события для EventShortDto без description, location и загрузки сущностей.
+ */
+public record EventShort(Long id,
+                         String annotation,
+                         Long categoryId,
+                         String categoryName,
+                         Integer confirmedRequests,
+                         LocalDateTime eventDate,
+                         Long initiatorId,
+                         String initiatorName,
+                         Boolean paid,
+                         String title,
+                         Long views,
+                         LocalDateTime createdOn) {
+}
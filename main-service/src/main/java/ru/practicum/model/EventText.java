@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record EventText(Long id, String title, String annotation) {
+}
@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record EventViews(Long id, Long views) {
+}
@@ -0,0 +1,7 @@
+package ru.practicum.model.enums;
+
+public enum EventSort {
+    EVENT_DATE,
+    VIEWS,
+    RELEVANCE
+}
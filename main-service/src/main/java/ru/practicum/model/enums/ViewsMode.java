@@ -0,0 +1,10 @@
+package ru.practicum.model.enums;
+
+/**
+ * Источник просмотров событий: PULL - запрос в сервис статистики при каждом чтении,
+ * PUSH - значения events.views, которые периодически обновляет ленту изменений сервиса статистики.
+ */
+public enum ViewsMode {
+    PULL,
+    PUSH
+}
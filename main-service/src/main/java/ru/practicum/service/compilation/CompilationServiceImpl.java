@@ -47,12 +47,11 @@ public class CompilationServiceImpl implements CompilationService {
     @Override
     public Collection<CompilationDto> getAllCompilations(Boolean pinned, Integer from, Integer size) {
         PageRequest pageRequest = PageRequest.of(from, size);
-        List<Compilation> compilations;
-        if (pinned == null) {
-            compilations = compilationRepository.findAll(pageRequest).getContent();
-        } else {
-            compilations = compilationRepository.findAllByPinned(pinned, pageRequest);
+        List<Long> ids = compilationRepository.findIds(pinned, pageRequest);
+        if (ids.isEmpty()) {
+            return List.of();
         }
+        List<Compilation> compilations = compilationRepository.findAllByIdInOrderById(ids);
 
         return compilations.stream()
                 .map(CompilationMapper::toCompilationDto)
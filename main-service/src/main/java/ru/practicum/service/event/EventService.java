@@ -16,24 +16,28 @@ public interface EventService {
 
     EventFullDto updateEventAdmin(Long eventId, UpdateEventAdminRequest updateEventAdminRequest);
 
-    List<EventFullDto> findEventsByAdmin(List<Long> users,
-                                      List<String> states,
-                                      List<Long> categories,
-                                      String rangeStart,
-                                      String rangeEnd,
-                                      int from,
-                                      int size);
-
-    List<EventShortDto> findEventsByPublic(String text,
-                                                 List<Long> categories,
-                                                 Boolean paid,
-                                                 String rangeStart,
-                                                 String rangeEnd,
-                                                 Boolean onlyAvailable,
-                                                 String sort,
-                                                 int from,
-                                                 int size,
-                                                 HttpServletRequest request);
+    EventPage<EventFullDto> findEventsByAdmin(List<Long> users,
+                                              List<String> states,
+                                              List<Long> categories,
+                                              String rangeStart,
+                                              String rangeEnd,
+                                              String cursor,
+                                              int from,
+                                              int size);
+
+    EventPage<EventShortDto> findEventsByPublic(String text,
+                                                List<Long> categories,
+                                                Boolean paid,
+                                                String rangeStart,
+                                                String rangeEnd,
+                                                Boolean onlyAvailable,
+                                                String sort,
+                                                String cursor,
+                                                int from,
+                                                int size,
+                                                HttpServletRequest request);
+
+    List<EventSuggestionDto> suggestEvents(String query, int size);
 
     List<EventShortDto> findEvents(Long userId, int from, int size);
 
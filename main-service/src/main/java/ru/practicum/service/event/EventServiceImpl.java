@@ -3,14 +3,17 @@ package ru.practicum.service.event;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.practicum.HitDto;
 import ru.practicum.StatsClient;
 import ru.practicum.StatsDto;
+import ru.practicum.StatsUnavailableException;
 import ru.practicum.dal.*;
 import ru.practicum.dto.event.*;
 import ru.practicum.dto.request.ParticipationRequestDto;
@@ -23,18 +26,25 @@ import ru.practicum.mapper.RequestMapper;
 import ru.practicum.model.*;
 import ru.practicum.model.enums.ActionState;
 import ru.practicum.model.enums.ActionStateAdmin;
+import ru.practicum.model.enums.EventSort;
 import ru.practicum.model.enums.RequestStatus;
 import ru.practicum.model.enums.State;
+import ru.practicum.model.enums.ViewsMode;
 
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class EventServiceImpl implements EventService {
+    private static final int MIN_RANKING_CHUNK = 100;
+    private static final int MAX_RANKING_CHUNK = 1000;
+    private static final int MAX_SUGGESTIONS = 100;
 
     private final StatsClient statsClient;
 
@@ -48,6 +58,14 @@ public class EventServiceImpl implements EventService {
 
     private final RequestRepository requestRepository;
 
+    private final EventViewsBuffer eventViewsBuffer;
+
+    private final EventViewsRanking eventViewsRanking;
+
+    private final EventSuggestIndex eventSuggestIndex;
+
+    @Value("${views.mode:pull}")
+    private ViewsMode viewsMode;
 
     @Override
     public EventFullDto save(Long userId, NewEventDto newEventDto) {
@@ -74,7 +92,7 @@ public class EventServiceImpl implements EventService {
         return eventFullDto;
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
     public EventFullDto getEventById(Long eventId, HttpServletRequest request) {
         Event event = validateEventExist(eventId);
@@ -82,10 +100,14 @@ public class EventServiceImpl implements EventService {
             throw new NotFoundException("Событие с id = " + eventId + " не опубликовано");
         }
         sendStat(request);
-        updateEventViews(event, request);
-        return EventMapper.toEventFullDto(event);
+        EventFullDto eventFullDto = EventMapper.toEventFullDto(event);
+        if (viewsMode == ViewsMode.PULL) {
+            updateEventViews(eventFullDto, event, request);
+        }
+        return eventFullDto;
     }
 
+    @Transactional
     @Override
     public EventFullDto updateEventAdmin(Long eventId, UpdateEventAdminRequest updateEventAdminRequest) {
         LocalDateTime validDate = LocalDateTime.now();
@@ -133,20 +155,23 @@ public class EventServiceImpl implements EventService {
         Event eventAfterUpdate = null;
         if (hasChanges) {
             eventAfterUpdate = eventRepository.save(eventForUpdate);
+            reindexAfterCommit(eventAfterUpdate);
         }
         return eventAfterUpdate != null ? EventMapper.toEventFullDto(eventAfterUpdate) : null;
     }
 
     @Override
-    public List<EventFullDto> findEventsByAdmin(List<Long> users,
-                                                List<String> states,
-                                                List<Long> categories,
-                                                String rangeStart,
-                                                String rangeEnd,
-                                                int from,
-                                                int size) {
-
-        Pageable pageable = createPageable(from, size, null);
+    public EventPage<EventFullDto> findEventsByAdmin(List<Long> users,
+                                                     List<String> states,
+                                                     List<Long> categories,
+                                                     String rangeStart,
+                                                     String rangeEnd,
+                                                     String cursor,
+                                                     int from,
+                                                     int size) {
+
+        EventCursor after = parseCursor(cursor, null, from);
+        Pageable pageable = createPageable(after != null ? 0 : from, size);
 
         LocalDateTime start = parseDateTime(rangeStart, null);
         LocalDateTime end = parseDateTime(rangeEnd, null);
@@ -161,69 +186,57 @@ public class EventServiceImpl implements EventService {
                 categories,
                 start,
                 end,
+                after != null ? after.id() : null,
                 pageable
         );
 
         if (events.isEmpty()) {
-            return List.of();
+            return new EventPage<>(List.of(), null);
         }
 
-        Map<Long, List<Request>> confirmedRequests = requestRepository
-                .findAllByEventIdInAndStatus(
+        Map<Long, Long> confirmedRequests = requestRepository
+                .countByEventIdInAndStatus(
                         events.stream().map(Event::getId).collect(Collectors.toList()),
                         RequestStatus.CONFIRMED
                 ).stream()
-                .collect(Collectors.groupingBy(r -> r.getEvent().getId()
-                ));
-
-        List<String> uris = events.stream()
-                .map(event -> "/events/" + event.getId())
-                .collect(Collectors.toList());
-
-        String statsStart = events.stream()
-                .map(Event::getCreatedOn)
-                .filter(Objects::nonNull)
-                .min(LocalDateTime::compareTo)
-                .map(date -> date.format(Constants.DATE_TIME_FORMATTER))
-                .orElse("1970-01-01 00:00:00");
+                .collect(Collectors.toMap(EventRequestCount::eventId, EventRequestCount::count));
 
-        List<StatsDto> stats = statsClient.getStats(
-                statsStart,
-                LocalDateTime.now().format(Constants.DATE_TIME_FORMATTER),
-                uris,
-                false
-        );
-
-        Map<Long, Long> views = stats.stream()
-                .collect(Collectors.toMap(
-                        stat -> Long.parseLong(stat.getUri().substring(stat.getUri().lastIndexOf('/') + 1)),
-                        StatsDto::getHits
-                ));
+        Map<Long, Long> views = findViews(
+                events.stream().map(event -> new EventViews(event.getId(), event.getViews())).toList(),
+                events.stream().map(Event::getCreatedOn),
+                false);
 
-        return events.stream()
+        List<EventFullDto> result = events.stream()
                 .map(event -> {
                     EventFullDto dto = EventMapper.toEventFullDto(event);
-                    dto.setConfirmedRequests(confirmedRequests.getOrDefault(event.getId(), List.of()).size());
+                    dto.setConfirmedRequests(confirmedRequests.getOrDefault(event.getId(), 0L).intValue());
                     dto.setViews(views.getOrDefault(event.getId(), 0L));
                     return dto;
                 })
                 .collect(Collectors.toList());
+        String next = events.size() == size ? EventCursor.byId(events.getLast().getId()).encode() : null;
+        return new EventPage<>(result, next);
     }
 
     @Override
-    public List<EventShortDto> findEventsByPublic(String text,
-                                                  List<Long> categories,
-                                                  Boolean paid,
-                                                  String rangeStart,
-                                                  String rangeEnd,
-                                                  Boolean onlyAvailable,
-                                                  String sort,
-                                                  int from,
-                                                  int size,
-                                                  HttpServletRequest request) {
-
-
-        Pageable pageable = createPageable(from, size, sort);
+    public EventPage<EventShortDto> findEventsByPublic(String text,
+                                                       List<Long> categories,
+                                                       Boolean paid,
+                                                       String rangeStart,
+                                                       String rangeEnd,
+                                                       Boolean onlyAvailable,
+                                                       String sort,
+                                                       String cursor,
+                                                       int from,
+                                                       int size,
+                                                       HttpServletRequest request) {
+
+
+        EventSort eventSort = parseSort(sort);
+        if (cursor != null && eventSort == EventSort.RELEVANCE) {
+            throw new ValidationException("Курсор не поддерживается для сортировки RELEVANCE");
+        }
+        EventCursor after = parseCursor(cursor, eventSort, from);
         LocalDateTime start = parseDateTime(rangeStart, LocalDateTime.now());
         LocalDateTime end = parseDateTime(rangeEnd, null);
         if (start == null) {
@@ -234,27 +247,159 @@ public class EventServiceImpl implements EventService {
             throw new ValidationException("Дата окончания не может быть раньше даты начала");
         }
         sendStat(request);
-        List<Event> events = eventRepository.findAllByPublic(
-                text, categories, paid, start, end, onlyAvailable,
-                State.PUBLISHED, pageable
-        );
-        for (Event event : events) {
-            updateEventViews(event, request);
+        EventSearch search = new EventSearch(text, categories, paid, start, end,
+                Boolean.TRUE.equals(onlyAvailable), null);
+        List<EventShort> events;
+        EventCursor next = null;
+        if (eventSort == EventSort.VIEWS) {
+            List<EventViews> ranked = findRankedByViews(search, after, from, size);
+            events = findEventsInOrder(ranked.stream().map(EventViews::id).toList());
+            if (ranked.size() == size) {
+                next = EventCursor.byViews(ranked.getLast().views(), ranked.getLast().id());
+            }
+        } else {
+            events = findEventsInOrder(eventRepository.findPublishedIds(search, eventSort, after, from * size, size));
+            if (events.size() == size && eventSort == EventSort.EVENT_DATE) {
+                next = EventCursor.byEventDate(events.getLast().eventDate(), events.getLast().id());
+            } else if (events.size() == size && eventSort == null) {
+                next = EventCursor.byId(events.getLast().id());
+            }
         }
+        if (events.isEmpty()) {
+            return new EventPage<>(List.of(), null);
+        }
+        Map<Long, Long> views = findViews(
+                events.stream().map(event -> new EventViews(event.id(), event.views())).toList(),
+                events.stream().map(EventShort::createdOn),
+                true);
         List<EventShortDto> result = new ArrayList<>();
-        for (Event event : events) {
-            result.add(EventMapper.toEventShortDto(event));
+        for (EventShort event : events) {
+            EventShortDto dto = EventMapper.toEventShortDto(event);
+            dto.setViews(views.getOrDefault(event.id(), 0L));
+            result.add(dto);
+        }
+        return new EventPage<>(result, next != null ? next.encode() : null);
+    }
+
+    /**
+     * Страница рейтинга по убыванию просмотров: идентификаторы берутся из рейтинга в памяти растущими
+     * порциями (с курсора, если он задан), база только отфильтровывает их, пока не наберется нужное число.
+     */
+    private List<EventViews> findRankedByViews(EventSearch search, EventCursor after, int from, int size) {
+        int offset = after != null ? 0 : from * size;
+        if (search.text() != null) {
+            List<Long> matches = eventRepository.findPublishedMatches(search, EventSearchRepository.MATCH_LIMIT);
+            if (matches.size() < EventSearchRepository.MATCH_LIMIT) {
+                return rankMatches(matches, after, offset, size);
+            }
+        }
+        int needed = offset + size;
+        List<EventViews> matched = new ArrayList<>(needed);
+        Iterator<EventViews> ranked = after != null
+                ? eventViewsRanking.rankedAfter(after.views(), after.id())
+                : eventViewsRanking.ranked();
+        int chunkSize = Math.min(Math.max(needed, MIN_RANKING_CHUNK), MAX_RANKING_CHUNK);
+        while (matched.size() < needed && ranked.hasNext()) {
+            List<EventViews> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize && ranked.hasNext()) {
+                chunk.add(ranked.next());
+            }
+            Set<Long> found = new HashSet<>(eventRepository.findPublishedIds(
+                    search.withIds(chunk.stream().map(EventViews::id).toList()), null, null, 0, chunk.size()));
+            chunk.stream().filter(event -> found.contains(event.id())).forEach(matched::add);
+            chunkSize = Math.min(chunkSize * 2, MAX_RANKING_CHUNK);
+        }
+        if (matched.size() <= offset) {
+            return List.of();
+        }
+        return matched.subList(offset, Math.min(needed, matched.size()));
+    }
+
+    /**
+     * Все совпадения редкого текста уже найдены по индексу, они упорядочиваются по просмотрам из рейтинга
+     * без обхода всего рейтинга.
+     */
+    private List<EventViews> rankMatches(List<Long> ids, EventCursor after, int offset, int size) {
+        Comparator<EventViews> byViews = Comparator.comparing(EventViews::views, Comparator.reverseOrder())
+                .thenComparing(EventViews::id);
+        EventViews last = after != null ? new EventViews(after.id(), after.views()) : null;
+        return ids.stream()
+                .map(id -> new EventViews(id, eventViewsRanking.viewsOf(id)))
+                .filter(event -> last == null || byViews.compare(event, last) > 0)
+                .sorted(byViews)
+                .skip(offset)
+                .limit(size)
+                .toList();
+    }
+
+    /**
+     * Курсор продолжает выдачу с той же сортировкой; вместе с ним from не задается.
+     */
+    private EventCursor parseCursor(String cursor, EventSort sort, int from) {
+        if (cursor == null) {
+            return null;
+        }
+        if (from != 0) {
+            throw new ValidationException("Параметры cursor и from не могут быть заданы одновременно");
+        }
+        EventCursor after;
+        try {
+            after = EventCursor.decode(cursor);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new ValidationException("Некорректный курсор: " + cursor);
+        }
+        if (after.sort() != sort) {
+            throw new ValidationException("Курсор получен для другой сортировки");
+        }
+        return after;
+    }
+
+    private List<EventShort> findEventsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, EventShort> events = eventRepository.findShortByIdIn(ids).stream()
+                .collect(Collectors.toMap(EventShort::id, event -> event));
+        List<EventShort> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            EventShort event = events.get(id);
+            if (event != null) {
+                result.add(event);
+            }
         }
         return result;
     }
 
+    private EventSort parseSort(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return null;
+        }
+        try {
+            return EventSort.valueOf(sort.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    "Недопустимый параметр сортировки. Используйте: EVENT_DATE, VIEWS или RELEVANCE");
+        }
+    }
+
+    @Override
+    public List<EventSuggestionDto> suggestEvents(String query, int size) {
+        if (size < 1 || size > MAX_SUGGESTIONS) {
+            throw new ValidationException("Число подсказок должно быть от 1 до " + MAX_SUGGESTIONS);
+        }
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        return eventSuggestIndex.suggest(query, size);
+    }
+
     @Override
     public List<EventShortDto> findEvents(Long userId, int from, int size) {
         validateUserExist(userId);
 
-        Pageable pageable = createPageable(from, size, null);
+        Pageable pageable = createPageable(from, size);
 
-        return eventRepository.findByUserId(userId, pageable).stream()
+        return eventRepository.findShortByUserId(userId, pageable).stream()
                 .map(EventMapper::toEventShortDto)
                 .toList();
     }
@@ -266,6 +411,7 @@ public class EventServiceImpl implements EventService {
         return EventMapper.toEventFullDto(event);
     }
 
+    @Transactional
     @Override
     public EventFullDto updateEvent(Long eventId, Long userId, UpdateEventUserRequest updateEventUserRequest) {
         LocalDateTime validDate = LocalDateTime.now();
@@ -311,6 +457,7 @@ public class EventServiceImpl implements EventService {
         Event eventAfterUpdate = null;
         if (hasChanges) {
             eventAfterUpdate = eventRepository.save(eventForUpdate);
+            reindexAfterCommit(eventAfterUpdate);
         }
 
         return eventAfterUpdate != null ? EventMapper.toEventFullDto(eventAfterUpdate) : null;
@@ -396,24 +543,40 @@ public class EventServiceImpl implements EventService {
         }
     }
 
-    private String mapSortParameterToFieldName(String sort) {
-        return switch (sort.toUpperCase()) {
-            case "EVENT_DATE" -> "eventDate";
-            case "VIEWS" -> "views";
-            default -> throw new IllegalArgumentException(
-                    "Недопустимый параметр сортировки. Используйте: EVENT_DATE or VIEWS"
-            );
+    /**
+     * Рейтинг просмотров и индекс подсказок меняются только после фиксации транзакции, чтобы откат
+     * не оставил в них неопубликованное событие.
+     */
+    private void reindexAfterCommit(Event event) {
+        Runnable reindex = () -> {
+            if (event.getState() == State.PUBLISHED) {
+                eventViewsRanking.add(event.getId(), event.getViews());
+            }
+            eventSuggestIndex.update(event);
         };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reindex.run();
+                }
+            });
+        } else {
+            reindex.run();
+        }
     }
 
-
     private void sendStat(HttpServletRequest request) {
-        statsClient.saveHit(HitDto.builder()
-                .app("main-service")
-                .uri(request.getRequestURI())
-                .ip(request.getRemoteAddr())
-                .timeStamp(LocalDateTime.now())
-                .build());
+        try {
+            statsClient.sendHit(HitDto.builder()
+                    .app(Constants.APP_NAME)
+                    .uri(request.getRequestURI())
+                    .ip(request.getRemoteAddr())
+                    .timeStamp(LocalDateTime.now())
+                    .build());
+        } catch (StatsUnavailableException e) {
+            log.warn("Хит {} не отправлен: {}", request.getRequestURI(), e.getMessage());
+        }
     }
 
     private Event updateUniversal(Event oldEvent, UpdateEventRequest updateEvent) {
@@ -466,24 +629,77 @@ public class EventServiceImpl implements EventService {
         return oldEvent;
     }
 
+    /**
+     * Просмотры страницы событий одним запросом к сервису статистики.
+     */
+    private Map<Long, Long> findViews(List<EventViews> events, Stream<LocalDateTime> createdOn, boolean unique) {
+        if (viewsMode == ViewsMode.PUSH) {
+            return storedViews(events);
+        }
+        List<String> uris = events.stream()
+                .map(event -> "/events/" + event.id())
+                .collect(Collectors.toList());
+
+        String statsStart = createdOn
+                .filter(Objects::nonNull)
+                .min(LocalDateTime::compareTo)
+                .map(date -> date.format(Constants.DATE_TIME_FORMATTER))
+                .orElse("1970-01-01 00:00:00");
+        try {
+            List<StatsDto> stats = statsClient.getStats(
+                    statsStart,
+                    LocalDateTime.now().format(Constants.DATE_TIME_FORMATTER),
+                    uris,
+                    unique
+            );
+            return stats.stream()
+                    .collect(Collectors.toMap(
+                            stat -> Long.parseLong(stat.getUri().substring(stat.getUri().lastIndexOf('/') + 1)),
+                            StatsDto::getHits
+                    ));
+        } catch (StatsUnavailableException e) {
+            log.warn("Просмотры событий взяты из сохраненных значений: {}", e.getMessage());
+            StaleViews.mark();
+            return storedViews(events);
+        }
+    }
+
+    private Map<Long, Long> storedViews(List<EventViews> events) {
+        Map<Long, Long> views = new HashMap<>();
+        for (EventViews event : events) {
+            if (event.views() != null) {
+                views.put(event.id(), event.views());
+            }
+        }
+        return views;
+    }
+
     private void validateEventDate(LocalDateTime eventDate, LocalDateTime minValidDate) {
         if (eventDate != null && eventDate.isBefore(minValidDate)) {
             throw new ValidationException("Дата события должна быть назначена через два часа");
         }
     }
 
-    private void updateEventViews(Event event, HttpServletRequest request) {
-        //sendStat(request);
-
+    /**
+     * Просмотры попадают в ответ сразу, а в events.views записываются пачкой через {@link EventViewsBuffer}.
+     */
+    private void updateEventViews(EventFullDto eventFullDto, Event event, HttpServletRequest request) {
         LocalDateTime statsStartDate = event.getPublishedOn();
         if (statsStartDate == null) {
             statsStartDate = event.getCreatedOn();
         }
-        List<StatsDto> views = statsClient.getStats(
-                statsStartDate.format(Constants.DATE_TIME_FORMATTER),
-                LocalDateTime.now().format(Constants.DATE_TIME_FORMATTER),
-                List.of(request.getRequestURI()),
-                true);
+        List<StatsDto> views;
+        try {
+            views = statsClient.getStats(
+                    statsStartDate.format(Constants.DATE_TIME_FORMATTER),
+                    LocalDateTime.now().format(Constants.DATE_TIME_FORMATTER),
+                    List.of(request.getRequestURI()),
+                    true);
+        } catch (StatsUnavailableException e) {
+            log.warn("Просмотры события {} взяты из сохраненного значения: {}", event.getId(), e.getMessage());
+            StaleViews.mark();
+            return;
+        }
 
         long newViews;
         if (views.isEmpty()) {
@@ -491,15 +707,11 @@ public class EventServiceImpl implements EventService {
         } else {
             newViews = views.get(0).getHits();
         }
-        event.setViews(newViews);
-        eventRepository.save(event);
+        eventFullDto.setViews(newViews);
+        eventViewsBuffer.record(event.getId(), newViews);
     }
 
-    private Pageable createPageable(int from, int size, String sort) {
-        if (sort != null && !sort.isBlank()) {
-            String sortField = mapSortParameterToFieldName(sort);
-            return PageRequest.of(from, size, Sort.by(sortField).descending());
-        }
+    private Pageable createPageable(int from, int size) {
         return PageRequest.of(from, size);
     }
 }
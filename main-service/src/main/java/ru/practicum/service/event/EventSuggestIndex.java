@@ -0,0 +1,249 @@
+package ru.practicum.service.event;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dal.EventRepository;
+import ru.practicum.dto.event.EventSuggestionDto;
+import ru.practicum.model.Event;
+import ru.practicum.model.EventText;
+import ru.practicum.model.enums.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Индекс подсказок по названиям и аннотациям опубликованных событий: для каждого слова хранятся
+ * его префиксы длиной от 2 до 10 символов (edge n-gram) с отсортированным массивом id событий. Каждое слово
+ * запроса должно быть началом какого-либо слова события; слова длиннее 10 символов сравниваются по первым 10.
+ * Чтение идет без блокировок: массивы не меняются, изменение выполняется по одному и подменяет массив копией.
+ * Для события хранится только исходный текст, префиксы для удаления вычисляются заново.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventSuggestIndex {
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_LENGTH = 10;
+    private static final int HEAP_THRESHOLD = 2048;
+    private static final int RANKING_SCAN_LIMIT = 20_000;
+
+    private final EventRepository eventRepository;
+    private final EventViewsRanking eventViewsRanking;
+    private final PlatformTransactionManager transactionManager;
+    private final Map<String, long[]> postings = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public synchronized void load() {
+        Map<String, LongList> loaded = new HashMap<>();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.executeWithoutResult(status -> {
+            try (Stream<EventText> texts = eventRepository.streamTextsByState(State.PUBLISHED)) {
+                texts.forEach(text -> {
+                    Entry entry = new Entry(text.title(), text.title() + " " + text.annotation());
+                    entries.put(text.id(), entry);
+                    for (String key : keysOf(entry.text())) {
+                        loaded.computeIfAbsent(key, k -> new LongList()).add(text.id());
+                    }
+                });
+            }
+        });
+        Iterator<Map.Entry<String, LongList>> keys = loaded.entrySet().iterator();
+        while (keys.hasNext()) {
+            Map.Entry<String, LongList> key = keys.next();
+            postings.put(key.getKey(), key.getValue().toSortedArray());
+            keys.remove();
+        }
+        log.info("Загружен индекс подсказок: событий {}, префиксов {}", entries.size(), postings.size());
+    }
+
+    /**
+     * Опубликованное событие добавляется или переиндексируется, остальные удаляются из индекса.
+     */
+    public void update(Event event) {
+        if (event.getState() == State.PUBLISHED) {
+            put(event.getId(), event.getTitle(), event.getAnnotation());
+        } else {
+            remove(event.getId());
+        }
+    }
+
+    public List<EventSuggestionDto> suggest(String query, int size) {
+        List<long[]> matches = new ArrayList<>();
+        for (String word : words(query)) {
+            if (word.length() < MIN_PREFIX_LENGTH) {
+                continue;
+            }
+            long[] ids = postings.get(word.substring(0, Math.min(word.length(), MAX_PREFIX_LENGTH)));
+            if (ids == null) {
+                return List.of();
+            }
+            matches.add(ids);
+        }
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+        long[] ids = intersect(matches);
+        List<Long> found = ids.length <= HEAP_THRESHOLD
+                ? topByViews(ids, size)
+                : firstByRanking(ids, size);
+        List<EventSuggestionDto> suggestions = new ArrayList<>(found.size());
+        for (Long id : found) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                suggestions.add(new EventSuggestionDto(id, entry.title(), eventViewsRanking.viewsOf(id)));
+            }
+        }
+        return suggestions;
+    }
+
+    private List<Long> topByViews(long[] ids, int size) {
+        Comparator<Candidate> byViews = Comparator.comparingLong(Candidate::views)
+                .thenComparing(Candidate::id, Comparator.reverseOrder());
+        PriorityQueue<Candidate> top = new PriorityQueue<>(size + 1, byViews);
+        for (long id : ids) {
+            top.add(new Candidate(id, eventViewsRanking.viewsOf(id)));
+            if (top.size() > size) {
+                top.poll();
+            }
+        }
+        List<Candidate> result = new ArrayList<>(top);
+        result.sort(byViews.reversed());
+        return result.stream().map(Candidate::id).toList();
+    }
+
+    /**
+     * Частые совпадения быстрее найти обходом рейтинга сверху. Если совпадения собраны внизу рейтинга,
+     * после RANKING_SCAN_LIMIT событий обход прекращается и лучшие выбираются из всех совпадений.
+     */
+    private List<Long> firstByRanking(long[] ids, int size) {
+        List<Long> result = new ArrayList<>(size);
+        Iterator<Long> ranked = eventViewsRanking.idsByViews();
+        for (int scanned = 0; result.size() < size && ranked.hasNext(); scanned++) {
+            if (scanned == RANKING_SCAN_LIMIT) {
+                return topByViews(ids, size);
+            }
+            Long id = ranked.next();
+            if (Arrays.binarySearch(ids, id) >= 0) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Пересечение отсортированных массивов: элементы самого короткого ищутся в остальных двоичным поиском.
+     */
+    private static long[] intersect(List<long[]> matches) {
+        matches.sort(Comparator.comparingInt(ids -> ids.length));
+        long[] result = matches.getFirst();
+        for (int i = 1; i < matches.size(); i++) {
+            long[] other = matches.get(i);
+            result = Arrays.stream(result)
+                    .filter(id -> Arrays.binarySearch(other, id) >= 0)
+                    .toArray();
+        }
+        return result;
+    }
+
+    private synchronized void put(Long id, String title, String annotation) {
+        remove(id);
+        String text = title + " " + annotation;
+        for (String key : keysOf(text)) {
+            postings.merge(key, new long[]{id}, (ids, single) -> insert(ids, id));
+        }
+        entries.put(id, new Entry(title, text));
+    }
+
+    private synchronized void remove(Long id) {
+        Entry old = entries.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (String key : keysOf(old.text())) {
+            postings.computeIfPresent(key, (k, ids) -> delete(ids, id));
+        }
+    }
+
+    private static long[] insert(long[] ids, long id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            return ids;
+        }
+        index = -index - 1;
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, index);
+        result[index] = id;
+        System.arraycopy(ids, index, result, index + 1, ids.length - index);
+        return result;
+    }
+
+    private static long[] delete(long[] ids, long id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return ids;
+        }
+        if (ids.length == 1) {
+            return null;
+        }
+        long[] result = new long[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, index);
+        System.arraycopy(ids, index + 1, result, index, ids.length - index - 1);
+        return result;
+    }
+
+    private static Set<String> keysOf(String text) {
+        Set<String> keys = new HashSet<>();
+        for (String word : words(text)) {
+            for (int length = MIN_PREFIX_LENGTH; length <= Math.min(word.length(), MAX_PREFIX_LENGTH); length++) {
+                keys.add(word.substring(0, length));
+            }
+        }
+        return keys;
+    }
+
+    private static List<String> words(String text) {
+        return Arrays.stream(text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .toList();
+    }
+
+    private record Entry(String title, String text) {
+    }
+
+    private record Candidate(Long id, long views) {
+    }
+
+    private static final class LongList {
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toSortedArray() {
+            long[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.service.event;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.dal.EventRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Отложенная запись просмотров событий. Чтения только накапливают наибольшее полученное значение
+ * в счетчике события без блокировок, планировщик переносит изменившиеся значения в events.views
+ * пачками UPDATE. Счетчик, в который за интервал между сбросами ничего не пришло, удаляется,
+ * чтобы карта не росла вместе с числом когда-либо прочитанных событий. При остановке приложения
+ * накопленное записывается.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventViewsBuffer {
+    private final EventRepository eventRepository;
+    private final EventViewsRanking eventViewsRanking;
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    @Value("${views.flush-batch-size:1000}")
+    private int batchSize;
+
+    public void record(Long eventId, long views) {
+        Counter counter;
+        do {
+            counter = counters.computeIfAbsent(eventId, id -> new Counter());
+            counter.views.accumulate(views);
+        } while (counter.retired);
+        eventViewsRanking.update(eventId, counter.views.get());
+    }
+
+    @Scheduled(fixedDelayString = "${views.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<Long> ids = new ArrayList<>();
+        List<Long> views = new ArrayList<>();
+        List<Counter> flushed = new ArrayList<>();
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            long value = counter.views.get();
+            if (value > counter.flushed) {
+                ids.add(entry.getKey());
+                views.add(value);
+                flushed.add(counter);
+            } else {
+                retire(entry.getKey(), counter);
+            }
+        }
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, ids.size());
+            eventRepository.updateViews(ids.subList(from, to).toArray(Long[]::new),
+                    views.subList(from, to).toArray(Long[]::new));
+            for (int i = from; i < to; i++) {
+                flushed.get(i).flushed = views.get(i);
+            }
+        }
+        if (!ids.isEmpty()) {
+            log.debug("Записаны просмотры событий: {}", ids.size());
+        }
+    }
+
+    /**
+     * Удаляет записанный счетчик. Значение, успевшее прийти в него после проверки, переносится в новый счетчик
+     * и будет записано при следующем сбросе; record, увидевший удаленный счетчик, повторяет запись в новый.
+     */
+    private void retire(Long eventId, Counter counter) {
+        if (!counters.remove(eventId, counter)) {
+            return;
+        }
+        counter.retired = true;
+        long late = counter.views.get();
+        if (late > counter.flushed) {
+            counters.computeIfAbsent(eventId, id -> new Counter()).views.accumulate(late);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static class Counter {
+        private final LongAccumulator views = new LongAccumulator(Long::max, 0);
+        private long flushed;
+        private volatile boolean retired;
+    }
+}
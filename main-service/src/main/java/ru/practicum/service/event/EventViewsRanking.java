@@ -0,0 +1,95 @@
+package ru.practicum.service.event;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.dal.EventRepository;
+import ru.practicum.model.EventViews;
+import ru.practicum.model.enums.State;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Опубликованные события, упорядоченные по убыванию просмотров, для sort=VIEWS без сортировки в базе.
+ * Заполняется при старте из events.views и обновляется при публикации и изменении просмотров.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EventViewsRanking {
+    private final EventRepository eventRepository;
+    private final ConcurrentSkipListSet<Rank> ranks = new ConcurrentSkipListSet<>();
+    private final Map<Long, Long> views = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        for (EventViews event : eventRepository.findViewsByState(State.PUBLISHED)) {
+            add(event.id(), event.views());
+        }
+        log.info("Загружен рейтинг просмотров опубликованных событий: {}", views.size());
+    }
+
+    public void add(Long eventId, Long eventViews) {
+        long value = eventViews != null ? eventViews : 0L;
+        views.compute(eventId, (id, old) -> move(id, old, value));
+    }
+
+    /**
+     * Новое значение просмотров. Просмотры только растут, поэтому запоздавшее меньшее значение
+     * из параллельного запроса не откатывает рейтинг; события вне рейтинга (неопубликованные) пропускаются.
+     */
+    public void update(Long eventId, long eventViews) {
+        views.computeIfPresent(eventId, (id, old) -> old < eventViews ? move(id, old, eventViews) : old);
+    }
+
+    public long viewsOf(Long eventId) {
+        return views.getOrDefault(eventId, 0L);
+    }
+
+    /**
+     * Идентификаторы событий в порядке убывания просмотров. Итератор слабо согласован:
+     * событие, просмотры которого меняются во время обхода, может быть пропущено.
+     */
+    public Iterator<Long> idsByViews() {
+        return ranks.stream().map(Rank::eventId).iterator();
+    }
+
+    /**
+     * События рейтинга, следующие за событием с указанными просмотрами и id, вместе с их просмотрами.
+     */
+    public Iterator<EventViews> rankedAfter(long afterViews, long afterId) {
+        return toEventViews(ranks.tailSet(new Rank(afterViews, afterId), false));
+    }
+
+    public Iterator<EventViews> ranked() {
+        return toEventViews(ranks);
+    }
+
+    private static Iterator<EventViews> toEventViews(Set<Rank> ranks) {
+        return ranks.stream().map(rank -> new EventViews(rank.eventId(), rank.views())).iterator();
+    }
+
+    private Long move(Long eventId, Long old, long value) {
+        if (old != null) {
+            if (old == value) {
+                return old;
+            }
+            ranks.remove(new Rank(old, eventId));
+        }
+        ranks.add(new Rank(value, eventId));
+        return value;
+    }
+
+    private record Rank(long views, long eventId) implements Comparable<Rank> {
+        @Override
+        public int compareTo(Rank other) {
+            int byViews = Long.compare(other.views, views);
+            return byViews != 0 ? byViews : Long.compare(eventId, other.eventId);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ru.practicum.service.event;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.StatsClient;
+import ru.practicum.StatsUnavailableException;
+import ru.practicum.ViewsChangesDto;
+import ru.practicum.ViewsDto;
+import ru.practicum.dal.EventRepository;
+import ru.practicum.model.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Перенос просмотров событий из ленты изменений сервиса статистики в events.views одним UPDATE
+ * на пачку. Курсор хранится в памяти: после перезапуска лента читается с начала, что безопасно,
+ * так как значения в ней абсолютные.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "views.mode", havingValue = "push")
+public class EventViewsSync {
+    private static final Pattern EVENT_URI = Pattern.compile("/events/(\\d+)");
+
+    private final StatsClient statsClient;
+    private final EventRepository eventRepository;
+    private final EventViewsRanking eventViewsRanking;
+    private String cursor;
+
+    @Value("${views.sync-batch-size:1000}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${views.sync-interval-ms:1000}")
+    public void sync() {
+        try {
+            ViewsChangesDto changes;
+            do {
+                changes = statsClient.getViewChanges(cursor, Constants.APP_NAME, batchSize);
+                apply(changes.getViews());
+                cursor = changes.getCursor();
+            } while (changes.isMore());
+        } catch (StatsUnavailableException e) {
+            log.warn("Просмотры событий не обновлены: {}", e.getMessage());
+        }
+    }
+
+    private void apply(List<ViewsDto> views) {
+        List<Long> ids = new ArrayList<>(views.size());
+        List<Long> counts = new ArrayList<>(views.size());
+        for (ViewsDto view : views) {
+            Matcher matcher = EVENT_URI.matcher(view.getUri());
+            if (matcher.matches() && matcher.group(1).length() < 19) {
+                ids.add(Long.parseLong(matcher.group(1)));
+                counts.add(view.getViews());
+            }
+        }
+        if (!ids.isEmpty()) {
+            int updated = eventRepository.updateViews(ids.toArray(Long[]::new), counts.toArray(Long[]::new));
+            log.debug("Обновлены просмотры событий: {} из {}", updated, ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                eventViewsRanking.update(ids.get(i), counts.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.service.event;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Отметка текущего запроса: просмотры взяты из сохраненного значения, а не из сервиса статистики.
+ */
+public final class StaleViews {
+    public static final String ATTRIBUTE = StaleViews.class.getName();
+
+    private StaleViews() {
+    }
+
+    public static void mark() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+}
@@ -37,6 +37,18 @@ CREATE TABLE IF NOT EXISTS events (
     CONSTRAINT fk_event_location FOREIGN KEY (location_id) REFERENCES locations(id)
 );
 
+ALTER TABLE events ADD COLUMN IF NOT EXISTS search TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', title), 'A')
+    || setweight(to_tsvector('simple', annotation), 'B')
+    || setweight(to_tsvector('simple', description), 'C')
+) STORED;
+
+ALTER TABLE events ALTER COLUMN search SET STATISTICS 1000;
+
+CREATE INDEX IF NOT EXISTS events_search_idx ON events USING GIN (search);
+
+CREATE INDEX IF NOT EXISTS events_published_date_idx ON events (event_date, id) WHERE state = 'PUBLISHED';
+
 CREATE TABLE IF NOT EXISTS requests
 (
     id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
@@ -0,0 +1,187 @@
+package ru.practicum.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.practicum.StatsClient;
+import ru.practicum.StatsDto;
+import ru.practicum.dto.category.NewCategoryDto;
+import ru.practicum.dto.compilation.NewCompilationDto;
+import ru.practicum.dto.event.EventShortDto;
+import ru.practicum.dto.event.NewEventDto;
+import ru.practicum.dto.event.UpdateEventAdminRequest;
+import ru.practicum.dto.location.LocationDto;
+import ru.practicum.dto.user.NewUserRequest;
+import ru.practicum.model.enums.ActionStateAdmin;
+import ru.practicum.service.category.CategoryService;
+import ru.practicum.service.compilation.CompilationService;
+import ru.practicum.service.event.EventService;
+import ru.practicum.service.request.RequestService;
+import ru.practicum.service.user.UserService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Число JDBC-запросов на страницу списка не должно зависеть от ее размера: связи событий
+ * загружаются вместе со страницей, а не по одной на строку. Просмотры публичной страницы
+ * запрашиваются у сервиса статистики одним вызовом и не сохраняются в события.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "stats-client.async.enabled=false",
+        "views.mode=pull"
+})
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ListingStatementCountTest {
+    private static final int SMALL_PAGE = 5;
+    private static final int LARGE_PAGE = 20;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @MockBean
+    private StatsClient statsClient;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private RequestService requestService;
+    @Autowired
+    private CompilationService compilationService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long initiatorId;
+
+    @BeforeAll
+    void saveEvents() {
+        List<Long> categoryIds = new ArrayList<>();
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            categoryIds.add(categoryService.save(new NewCategoryDto("Категория " + i)).getId());
+            userIds.add(userService.saveUser(new NewUserRequest("user" + i + "@mail.ru", "Пользователь " + i)).getId());
+        }
+        initiatorId = userIds.getFirst();
+        Long requesterId = userService.saveUser(new NewUserRequest("requester@mail.ru", "Участник")).getId();
+        List<Long> eventIds = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Long userId = i < LARGE_PAGE ? initiatorId : userIds.get(i % userIds.size());
+            Long eventId = eventService.save(userId, NewEventDto.builder()
+                    .annotation("Аннотация события номер " + i)
+                    .category(categoryIds.get(i % categoryIds.size()))
+                    .description("Описание события номер " + i)
+                    .eventDate(LocalDateTime.now().plusDays(1).plusHours(i))
+                    .location(new LocationDto(55.75f + i, 37.61f))
+                    .requestModeration(false)
+                    .title("Событие " + i)
+                    .build()).getId();
+            UpdateEventAdminRequest publish = new UpdateEventAdminRequest();
+            publish.setStateAction(ActionStateAdmin.PUBLISH_EVENT);
+            eventService.updateEventAdmin(eventId, publish);
+            if (i % 3 == 0) {
+                requestService.addRequest(requesterId, eventId);
+            }
+            eventIds.add(eventId);
+        }
+        for (int i = 0; i < 6; i++) {
+            Set<Long> events = new HashSet<>(eventIds.subList(i * 5, i * 5 + 5));
+            compilationService.createCompilation(new NewCompilationDto(events, i % 2 == 0, "Подборка " + i));
+        }
+    }
+
+    @Test
+    void publicListDoesNotDependOnPageSize() {
+        assertStatementCount(2, SMALL_PAGE, LARGE_PAGE, size -> eventService.findEventsByPublic(null, null, null,
+                null, null, false, null, null, 0, size, new MockHttpServletRequest("GET", "/events")));
+        assertStatementCount(2, SMALL_PAGE, LARGE_PAGE, size -> eventService.findEventsByPublic(null, null, null,
+                null, null, false, "EVENT_DATE", null, 0, size, new MockHttpServletRequest("GET", "/events")));
+    }
+
+    @Test
+    void publicListRequestsViewsOnceWithoutUpdates() {
+        when(statsClient.getStats(anyString(), anyString(), anyList(), eq(true))).thenAnswer(invocation -> {
+            List<String> uris = invocation.getArgument(2);
+            return uris.stream()
+                    .map(uri -> new StatsDto("ewm-main-service", uri, viewsOf(uri)))
+                    .toList();
+        });
+        for (int size : List.of(SMALL_PAGE, LARGE_PAGE)) {
+            clearInvocations(statsClient);
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            statistics.clear();
+            List<EventShortDto> events = eventService.findEventsByPublic(null, null, null, null, null, false,
+                    null, null, 0, size, new MockHttpServletRequest("GET", "/events")).getEvents();
+
+            assertEquals(size, events.size());
+            verify(statsClient, times(1)).getStats(anyString(), anyString(), anyList(), eq(true));
+            assertEquals(0, statistics.getEntityUpdateCount());
+            events.forEach(event -> assertEquals(viewsOf("/events/" + event.getId()), event.getViews().longValue()));
+        }
+    }
+
+    @Test
+    void adminListDoesNotDependOnPageSize() {
+        assertStatementCount(2, SMALL_PAGE, LARGE_PAGE, size -> eventService.findEventsByAdmin(null, null, null,
+                null, null, null, 0, size));
+    }
+
+    @Test
+    void privateListDoesNotDependOnPageSize() {
+        assertStatementCount(1, SMALL_PAGE, LARGE_PAGE, size -> eventService.findEvents(initiatorId, 0, size));
+    }
+
+    @Test
+    void compilationListDoesNotDependOnPageSize() {
+        assertStatementCount(2, 2, 6, size -> compilationService.getAllCompilations(null, 0, size));
+    }
+
+    /**
+     * Первый вызов прогревает кэш второго уровня, затем запросы считаются для страниц двух размеров.
+     */
+    private void assertStatementCount(long expected, int smallSize, int largeSize, IntConsumer listing) {
+        listing.accept(smallSize);
+        assertEquals(expected, countStatements(listing, smallSize));
+        assertEquals(expected, countStatements(listing, largeSize));
+    }
+
+    private static long viewsOf(String uri) {
+        return 10 * Long.parseLong(uri.substring(uri.lastIndexOf('/') + 1));
+    }
+
+    private long countStatements(IntConsumer listing, int size) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        listing.accept(size);
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,42 @@
+package ru.practicum;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Сообщения stats-service для замеров: пачка хитов POST /hits/batch и ответ /stats.
+ */
+public enum StatsPayload {
+    HITS {
+        @Override
+        List<?> create(int size) {
+            Random random = new Random(42);
+            LocalDateTime start = LocalDateTime.of(2025, 5, 12, 10, 0);
+            List<HitDto> hits = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                hits.add(HitDto.builder()
+                        .app("ewm-main-service")
+                        .uri(random.nextInt(5) == 0 ? "/events" : "/events/" + (1 + random.nextInt(50)))
+                        .ip("192.168." + random.nextInt(4) + "." + (1 + random.nextInt(254)))
+                        .timeStamp(start.plusNanos(i * 7_000_000L))
+                        .build());
+            }
+            return hits;
+        }
+    },
+    STATS {
+        @Override
+        List<?> create(int size) {
+            Random random = new Random(42);
+            List<StatsDto> stats = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                stats.add(new StatsDto("ewm-main-service", "/events/" + (1 + i), 1L + random.nextInt(100_000)));
+            }
+            return stats;
+        }
+    };
+
+    abstract List<?> create(int size);
+}
@@ -0,0 +1,76 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись и чтение пачки хитов и ответа /stats в JSON и Smile теми же ObjectMapper, что использует StatsClient.
+ * Запуск: java -jar stats/stats-bench/target/benchmarks.jar
+ * Размеры тех же сообщений: java -cp stats/stats-bench/target/benchmarks.jar ru.practicum.StatsWireFormatSizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class StatsWireFormatBenchmark {
+    private static final TypeReference<List<HitDto>> HITS = new TypeReference<>() {
+    };
+    private static final TypeReference<List<StatsDto>> STATS = new TypeReference<>() {
+    };
+
+    @Param({"HITS", "STATS"})
+    private StatsPayload payload;
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    @Param({"JSON", "SMILE"})
+    private StatsWireFormat format;
+
+    private ObjectMapper objectMapper;
+    private List<?> values;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = objectMapper(format);
+        values = payload.create(batchSize);
+        bytes = objectMapper.writeValueAsBytes(values);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return objectMapper.writeValueAsBytes(values);
+    }
+
+    @Benchmark
+    public List<?> read() throws IOException {
+        return payload == StatsPayload.HITS
+                ? objectMapper.readValue(bytes, HITS)
+                : objectMapper.readValue(bytes, STATS);
+    }
+
+    static ObjectMapper objectMapper(StatsWireFormat format) {
+        return format == StatsWireFormat.SMILE
+                ? StatsSmileMapper.create()
+                : Jackson2ObjectMapperBuilder.json().build();
+    }
+}
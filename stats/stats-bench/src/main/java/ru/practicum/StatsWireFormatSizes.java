@@ -0,0 +1,26 @@
+package ru.practicum;
+
+import java.io.IOException;
+
+/**
+ * Размер в байтах сообщений из StatsWireFormatBenchmark для каждого формата.
+ */
+public final class StatsWireFormatSizes {
+
+    private StatsWireFormatSizes() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.out.printf("%-6s %6s %8s %8s%n", "", "size", "JSON", "SMILE");
+        for (StatsPayload payload : StatsPayload.values()) {
+            for (int size : new int[]{100, 1000}) {
+                System.out.printf("%-6s %6d", payload, size);
+                for (StatsWireFormat format : StatsWireFormat.values()) {
+                    byte[] bytes = StatsWireFormatBenchmark.objectMapper(format).writeValueAsBytes(payload.create(size));
+                    System.out.printf(" %8d", bytes.length);
+                }
+                System.out.println();
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Clock;
+import java.util.function.Supplier;
+
+/**
+ * Предохранитель вызовов stats-service. После failureThreshold ошибок подряд вызовы отклоняются
+ * сразу в течение openDuration, затем пропускается не более halfOpenProbes пробных вызовов;
+ * если все они успешны, предохранитель замыкается, при любой ошибке снова размыкается.
+ * Ответы 4xx ошибкой сервиса не считаются.
+ */
+@Slf4j
+public class CircuitBreaker {
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private enum Permit {
+        CALL,
+        PROBE,
+        REJECTED
+    }
+
+    private final StatsClientProperties.CircuitBreaker config;
+    private final Clock clock;
+    private final Counter rejectedCounter;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    public CircuitBreaker(StatsClientProperties.CircuitBreaker config, Clock clock, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.clock = clock;
+        this.rejectedCounter = meterRegistry.counter("stats.client.circuit.rejected");
+        Gauge.builder("stats.client.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .register(meterRegistry);
+    }
+
+    public <T> T call(Supplier<T> call) {
+        Permit permit = acquire();
+        if (permit == Permit.REJECTED) {
+            rejectedCounter.increment();
+            throw new StatsUnavailableException("Сервис статистики временно недоступен");
+        }
+        try {
+            T result = call.get();
+            onSuccess(permit);
+            return result;
+        } catch (HttpClientErrorException e) {
+            onSuccess(permit);
+            throw e;
+        } catch (RuntimeException e) {
+            onFailure(permit);
+            throw e instanceof StatsUnavailableException
+                    ? e
+                    : new StatsUnavailableException("Сервис статистики недоступен: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private synchronized Permit acquire() {
+        if (!config.isEnabled()) {
+            return Permit.CALL;
+        }
+        if (state == State.CLOSED) {
+            return Permit.CALL;
+        }
+        if (state == State.OPEN) {
+            if (clock.millis() - openedAt < config.getOpenDuration().toMillis()) {
+                return Permit.REJECTED;
+            }
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+            probeSuccesses = 0;
+            log.info("Предохранитель stats-service: пробные вызовы");
+        }
+        if (probesInFlight >= config.getHalfOpenProbes()) {
+            return Permit.REJECTED;
+        }
+        probesInFlight++;
+        return Permit.PROBE;
+    }
+
+    private synchronized void onSuccess(Permit permit) {
+        if (permit == Permit.PROBE && state == State.HALF_OPEN) {
+            probesInFlight--;
+            if (++probeSuccesses >= config.getHalfOpenProbes()) {
+                state = State.CLOSED;
+                failures = 0;
+                log.info("Предохранитель stats-service замкнут");
+            }
+        } else if (state == State.CLOSED) {
+            failures = 0;
+        }
+    }
+
+    private synchronized void onFailure(Permit permit) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (state == State.HALF_OPEN && permit == Permit.PROBE
+                || state == State.CLOSED && ++failures >= config.getFailureThreshold()) {
+            state = State.OPEN;
+            openedAt = clock.millis();
+            log.warn("Предохранитель stats-service разомкнут на {}", config.getOpenDuration());
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum;
+
+public enum HitOverflowPolicy {
+    BLOCK,
+    DROP_OLDEST,
+    SPILL
+}
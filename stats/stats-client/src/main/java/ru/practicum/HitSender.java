@@ -0,0 +1,220 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Фоновая отправка хитов: хиты копятся в ограниченной очереди и уходят пачками
+ * по достижении размера пачки или по истечении интервала.
+ * <p>
+ * С журналом (политика SPILL) каждая пачка сначала дописывается в журнал и отправляется уже из него
+ * с источником и номерами записей, поэтому повтор после таймаута, когда сервис успел сохранить пачку,
+ * не создает дублей. Без журнала неотправленная пачка теряется и повторно не отправляется.
+ */
+@Slf4j
+public class HitSender implements AutoCloseable {
+    private final BlockingQueue<HitDto> queue;
+    private final Consumer<List<HitDto>> delivery;
+    private final StatsClientProperties.Async config;
+    private final HitSpool spool;
+    private final HitSpool.Delivery spoolDelivery;
+    private final Counter droppedCounter;
+    private final Counter spilledCounter;
+    private final Counter sentCounter;
+    private final Timer flushTimer;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public HitSender(Consumer<List<HitDto>> delivery,
+                     StatsClientProperties.Async config,
+                     HitSpool spool,
+                     HitSpool.Delivery spoolDelivery,
+                     MeterRegistry meterRegistry) {
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        this.delivery = delivery;
+        this.config = config;
+        this.spool = spool;
+        this.spoolDelivery = spoolDelivery;
+        this.droppedCounter = meterRegistry.counter("stats.client.hits.dropped");
+        this.spilledCounter = meterRegistry.counter("stats.client.hits.spilled");
+        this.sentCounter = meterRegistry.counter("stats.client.hits.sent");
+        this.flushTimer = meterRegistry.timer("stats.client.hits.flush");
+        Gauge.builder("stats.client.hits.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+        if (spool != null) {
+            Gauge.builder("stats.client.hits.spool.size", spool, HitSpool::size).register(meterRegistry);
+        }
+        this.worker = new Thread(this::run, "stats-hit-sender");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public void send(HitDto hit) {
+        switch (config.getOverflowPolicy()) {
+            case BLOCK -> offerBlocking(hit);
+            case DROP_OLDEST -> offerDroppingOldest(hit);
+            case SPILL -> offerOrSpill(hit);
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join(config.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            log.warn("Отправка хитов не завершилась за {}, в очереди осталось {}",
+                    config.getShutdownTimeout(), queue.size());
+        }
+    }
+
+    private void offerBlocking(HitDto hit) {
+        try {
+            if (!queue.offer(hit, config.getBlockTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                droppedCounter.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedCounter.increment();
+        }
+    }
+
+    private void offerDroppingOldest(HitDto hit) {
+        while (!queue.offer(hit)) {
+            if (queue.poll() != null) {
+                droppedCounter.increment();
+            }
+        }
+    }
+
+    private void offerOrSpill(HitDto hit) {
+        if (!queue.offer(hit)) {
+            spill(List.of(hit));
+        }
+    }
+
+    private void run() {
+        int batchSize = config.getBatchSize();
+        long intervalNanos = config.getFlushInterval().toNanos();
+        List<HitDto> batch = new ArrayList<>(batchSize);
+        long deadline = System.nanoTime() + intervalNanos;
+        while (running) {
+            try {
+                HitDto hit = queue.poll(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (hit != null) {
+                    batch.add(hit);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                if (batch.size() >= batchSize || System.nanoTime() - deadline >= 0) {
+                    flush(batch);
+                    deliverSpool();
+                    deadline = System.nanoTime() + intervalNanos;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Ошибка фоновой отправки хитов: {}", e.getMessage(), e);
+            }
+        }
+        while (!batch.isEmpty() || !queue.isEmpty()) {
+            queue.drainTo(batch, batchSize - batch.size());
+            flush(batch);
+        }
+        deliverSpool();
+    }
+
+    private void flush(List<HitDto> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            if (spool != null && append(batch)) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                delivery.accept(batch);
+                sentCounter.increment(batch.size());
+            } catch (RuntimeException e) {
+                log.warn("Не удалось отправить {} хитов в сервис статистики: {}", batch.size(), e.getMessage());
+                droppedCounter.increment(batch.size());
+            } finally {
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private boolean append(List<HitDto> hits) {
+        try {
+            spool.append(hits);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать {} хитов в журнал, отправка без него: {}", hits.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Отправляет журнал пачками, пока он не опустеет или не случится ошибка; при ошибке записи
+     * сбрасываются на диск и ждут следующего сброса. Пачка, отклоненная сервисом как некорректная (4xx),
+     * пропускается, чтобы не блокировать журнал.
+     */
+    private void deliverSpool() {
+        if (spool == null) {
+            return;
+        }
+        while (!spool.isEmpty()) {
+            HitSpool.Batch batch = spool.read(config.getBatchSize());
+            long start = System.nanoTime();
+            try {
+                spoolDelivery.deliver(batch.hits(), spool.getSource(), batch.firstSequence());
+                sentCounter.increment(batch.hits().size());
+            } catch (HttpClientErrorException e) {
+                log.error("Сервис статистики отклонил {} хитов из журнала, они пропущены: {}",
+                        batch.hits().size(), e.getMessage());
+                droppedCounter.increment(batch.hits().size());
+            } catch (RuntimeException e) {
+                log.debug("Отправка хитов из журнала не удалась, в журнале {}: {}", spool.size(), e.getMessage());
+                spool.sync();
+                return;
+            } finally {
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            spool.commit();
+        }
+    }
+
+    private void spill(List<HitDto> hits) {
+        if (spool == null) {
+            droppedCounter.increment(hits.size());
+            return;
+        }
+        try {
+            spool.append(hits);
+            spilledCounter.increment(hits.size());
+        } catch (RuntimeException e) {
+            log.error("Хиты потеряны, запись в журнал не удалась: {}", e.getMessage());
+            droppedCounter.increment(hits.size());
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал недоставленных хитов из отображаемых в память сегментов. Каждая запись получает
+ * сквозной номер; номер последней подтвержденной сервисом записи хранится в файле checkpoint
+ * вместе с идентификатором журнала, по этой паре сервис отбрасывает повторы после сбоя.
+ * Запись: длина, номер, CRC32 и хит в JSON. Недописанный хвост сегмента при открытии обнуляется.
+ */
+@Slf4j
+public class HitSpool {
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path dir;
+    private final Path checkpointFile;
+    private final int segmentSize;
+    private final ObjectMapper objectMapper;
+    private final List<Segment> segments = new ArrayList<>();
+    private final String source;
+    private long checkpoint;
+    private long nextSequence;
+    private Segment readSegment;
+    private int readPosition;
+    private long pendingSequence;
+    private boolean dirty;
+
+    public HitSpool(Path dir, int segmentSize, ObjectMapper objectMapper) {
+        this.dir = dir;
+        this.checkpointFile = dir.resolve("checkpoint");
+        this.segmentSize = segmentSize;
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(dir);
+            String[] saved = Files.exists(checkpointFile)
+                    ? Files.readString(checkpointFile).trim().split(" ")
+                    : new String[0];
+            if (saved.length == 2) {
+                source = saved[0];
+                checkpoint = Long.parseLong(saved[1]);
+            } else {
+                source = UUID.randomUUID().toString();
+                checkpoint = 0L;
+                writeCheckpoint();
+            }
+            nextSequence = checkpoint + 1;
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.filter(f -> f.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                        .sorted().toList()) {
+                    openSegment(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал хитов " + dir, e);
+        }
+        deleteAcknowledged();
+        rewind();
+        log.info("Журнал хитов {}: {} неотправленных записей", dir, nextSequence - 1 - checkpoint);
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public synchronized void append(List<HitDto> hits) {
+        try {
+            for (HitDto hit : hits) {
+                byte[] payload = objectMapper.writeValueAsBytes(hit);
+                int recordSize = HEADER_SIZE + payload.length;
+                if (recordSize + Integer.BYTES > segmentSize) {
+                    throw new IllegalArgumentException("Хит не помещается в сегмент журнала: " + hit);
+                }
+                Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+                if (segment == null || segment.end + recordSize + Integer.BYTES > segmentSize) {
+                    segment = createSegment(nextSequence);
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                MappedByteBuffer buffer = segment.buffer;
+                int position = segment.end;
+                buffer.putLong(position + Integer.BYTES, nextSequence);
+                buffer.putInt(position + Integer.BYTES + Long.BYTES, (int) crc.getValue());
+                buffer.put(position + HEADER_SIZE, payload);
+                buffer.putInt(position, payload.length);
+                segment.end = position + recordSize;
+                segment.lastSequence = nextSequence++;
+            }
+            dirty = true;
+            if (readSegment == null) {
+                rewind();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать хиты в журнал", e);
+        }
+    }
+
+    /**
+     * Читает до max записей после последней подтвержденной; повторный вызов без commit
+     * возвращает те же записи.
+     */
+    public synchronized Batch read(int max) {
+        List<HitDto> hits = new ArrayList<>();
+        Segment segment = readSegment;
+        int position = readPosition;
+        long sequence = checkpoint;
+        try {
+            while (segment != null && hits.size() < max) {
+                if (position >= segment.end) {
+                    int index = segments.indexOf(segment) + 1;
+                    segment = index < segments.size() ? segments.get(index) : null;
+                    position = 0;
+                    continue;
+                }
+                int length = segment.buffer.getInt(position);
+                byte[] payload = new byte[length];
+                segment.buffer.get(position + HEADER_SIZE, payload);
+                hits.add(objectMapper.readValue(payload, HitDto.class));
+                sequence = segment.buffer.getLong(position + Integer.BYTES);
+                position += HEADER_SIZE + length;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать журнал хитов", e);
+        }
+        pendingSequence = sequence;
+        return new Batch(hits, checkpoint + 1);
+    }
+
+    /**
+     * Подтверждает записи, возвращенные последним read: checkpoint атомарно заменяется,
+     * полностью подтвержденные сегменты удаляются.
+     */
+    public synchronized void commit() {
+        if (pendingSequence <= checkpoint) {
+            return;
+        }
+        checkpoint = pendingSequence;
+        try {
+            writeCheckpoint();
+        } catch (IOException e) {
+            log.warn("Не удалось сохранить checkpoint журнала хитов: {}", e.getMessage());
+        }
+        deleteAcknowledged();
+        rewind();
+    }
+
+    public synchronized boolean isEmpty() {
+        return checkpoint >= nextSequence - 1;
+    }
+
+    public synchronized long size() {
+        return nextSequence - 1 - checkpoint;
+    }
+
+    /**
+     * Сбрасывает записанные страницы на диск; вызывается фоновым потоком, а не потоками запросов.
+     */
+    public synchronized void sync() {
+        if (dirty) {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+            }
+            dirty = false;
+        }
+    }
+
+    private void rewind() {
+        readSegment = null;
+        readPosition = 0;
+        for (Segment segment : segments) {
+            int position = 0;
+            while (position < segment.end) {
+                if (segment.buffer.getLong(position + Integer.BYTES) > checkpoint) {
+                    readSegment = segment;
+                    readPosition = position;
+                    return;
+                }
+                position += HEADER_SIZE + segment.buffer.getInt(position);
+            }
+        }
+    }
+
+    private void openSegment(Path file) throws IOException {
+        Segment segment = map(file);
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        long expected = -1;
+        while (position + HEADER_SIZE <= segmentSize) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_SIZE + length > segmentSize) {
+                break;
+            }
+            long sequence = buffer.getLong(position + Integer.BYTES);
+            byte[] payload = new byte[length];
+            buffer.get(position + HEADER_SIZE, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES + Long.BYTES)
+                    || expected != -1 && sequence != expected) {
+                break;
+            }
+            segment.lastSequence = sequence;
+            expected = sequence + 1;
+            position += HEADER_SIZE + length;
+        }
+        for (int i = position; i < segmentSize; i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        segment.end = position;
+        if (position == 0) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        segments.add(segment);
+        nextSequence = Math.max(nextSequence, segment.lastSequence + 1);
+    }
+
+    private Segment createSegment(long firstSequence) throws IOException {
+        Segment segment = map(dir.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX)));
+        segments.add(segment);
+        return segment;
+    }
+
+    private Segment map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+    }
+
+    private void deleteAcknowledged() {
+        while (!segments.isEmpty()) {
+            Segment segment = segments.get(0);
+            boolean active = segments.size() == 1 && segment.end + HEADER_SIZE < segmentSize;
+            if (segment.lastSequence > checkpoint || active) {
+                return;
+            }
+            segments.remove(0);
+            try {
+                Files.deleteIfExists(segment.file);
+            } catch (IOException e) {
+                log.warn("Не удалось удалить сегмент журнала {}: {}", segment.file, e.getMessage());
+            }
+        }
+    }
+
+    private void writeCheckpoint() throws IOException {
+        Path tmp = dir.resolve("checkpoint.tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(StandardCharsets.UTF_8.encode(source + " " + checkpoint));
+            channel.force(true);
+        }
+        Files.move(tmp, checkpointFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @FunctionalInterface
+    public interface Delivery {
+        void deliver(List<HitDto> hits, String source, long firstSequence);
+    }
+
+    /**
+     * Пачка записей журнала с номером первой из них; номера в пачке идут подряд.
+     */
+    public record Batch(List<HitDto> hits, long firstSequence) {
+    }
+
+    private static final class Segment {
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private int end;
+        private long lastSequence;
+
+        private Segment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+}
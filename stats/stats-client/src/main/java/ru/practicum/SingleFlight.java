@@ -0,0 +1,69 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одновременных одинаковых запросов: первый вызов по ключу выполняет запрос,
+ * остальные ждут его результат или ошибку. Ожидание ограничено таймаутом; зависший запрос
+ * при этом перестает принимать новых ожидающих, и следующий вызов выполняет запрос заново.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final Duration timeout;
+    private final Counter sharedCounter;
+    private final Counter timeoutCounter;
+
+    public SingleFlight(Duration timeout, MeterRegistry meterRegistry) {
+        this.timeout = timeout;
+        this.sharedCounter = meterRegistry.counter("stats.client.requests.coalesced");
+        this.timeoutCounter = meterRegistry.counter("stats.client.requests.coalesce.timeouts");
+    }
+
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = calls.putIfAbsent(key, created);
+        if (existing == null) {
+            try {
+                V result = call.get();
+                created.complete(result);
+                return result;
+            } catch (Throwable e) {
+                created.completeExceptionally(e);
+                throw e;
+            } finally {
+                calls.remove(key, created);
+            }
+        }
+
+        sharedCounter.increment();
+        try {
+            return existing.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeoutCounter.increment();
+            calls.remove(key, existing);
+            throw new StatsUnavailableException("StatsService не ответил за " + timeout);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new StatsUnavailableException("StatsService ошибка: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StatsUnavailableException("Ожидание ответа StatsService прервано", e);
+        }
+    }
+
+    public int getInFlight() {
+        return calls.size();
+    }
+}
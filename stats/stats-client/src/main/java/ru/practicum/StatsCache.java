@@ -0,0 +1,109 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Кэш статистики по отдельным uri. Ключ не содержит конец периода, поэтому кэш применяется
+ * только к запросам "до текущего момента": в пределах ttl такие ответы считаются одинаковыми.
+ * При переполнении вытесняется запись, к которой дольше всего не обращались.
+ */
+public class StatsCache {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final StatsClientProperties.Cache config;
+    private final Clock clock;
+    private final Map<Key, Entry> entries;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public StatsCache(StatsClientProperties.Cache config, Clock clock, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > config.getMaxSize();
+            }
+        };
+        this.hitCounter = meterRegistry.counter("stats.client.cache.hits");
+        this.missCounter = meterRegistry.counter("stats.client.cache.misses");
+        Gauge.builder("stats.client.cache.size", this, StatsCache::size).register(meterRegistry);
+        Gauge.builder("stats.client.cache.hit.ratio", this, StatsCache::hitRatio).register(meterRegistry);
+    }
+
+    public boolean isCacheable(String end) {
+        LocalDateTime endTime = LocalDateTime.parse(end, FORMATTER);
+        return !endTime.isBefore(LocalDateTime.now(clock).minus(config.getTtl()));
+    }
+
+    /**
+     * Добавляет в result закэшированные строки и возвращает uri, которых в кэше нет.
+     */
+    public List<String> collect(Collection<String> uris, boolean unique, String start, List<StatsDto> result) {
+        long now = clock.millis();
+        List<String> missing = new ArrayList<>();
+        synchronized (entries) {
+            for (String uri : uris) {
+                Key key = new Key(uri, unique, start);
+                Entry entry = entries.get(key);
+                if (entry != null && entry.expiresAt() > now) {
+                    result.addAll(entry.stats());
+                } else {
+                    if (entry != null) {
+                        entries.remove(key);
+                    }
+                    missing.add(uri);
+                }
+            }
+        }
+        hitCounter.increment(uris.size() - missing.size());
+        missCounter.increment(missing.size());
+        return missing;
+    }
+
+    /**
+     * Запоминает ответ по каждому запрошенному uri, в том числе пустой, если просмотров не было.
+     */
+    public void putAll(Collection<String> uris, boolean unique, String start, List<StatsDto> stats) {
+        Map<String, List<StatsDto>> byUri = new HashMap<>();
+        for (StatsDto stat : stats) {
+            byUri.computeIfAbsent(stat.getUri(), uri -> new ArrayList<>()).add(stat);
+        }
+        long expiresAt = clock.millis() + config.getTtl().toMillis();
+        synchronized (entries) {
+            for (String uri : uris) {
+                entries.put(new Key(uri, unique, start),
+                        new Entry(List.copyOf(byUri.getOrDefault(uri, List.of())), expiresAt));
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private double hitRatio() {
+        double total = hitCounter.count() + missCounter.count();
+        return total == 0 ? 0 : hitCounter.count() / total;
+    }
+
+    private record Key(String uri, boolean unique, String start) {
+    }
+
+    private record Entry(List<StatsDto> stats, long expiresAt) {
+    }
+}
@@ -1,49 +1,235 @@
 package ru.practicum;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
 
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
-@AllArgsConstructor
 public class StatsClient {
+    public static final String HIT_SOURCE_HEADER = "X-Hit-Source";
+    public static final String HIT_SEQUENCE_HEADER = "X-Hit-Sequence";
+
     private final RestClient restClient;
+    private final StatsHttpTransport transport;
     private final String url;
+    private final HitSender hitSender;
+    private final StatsCache cache;
+    private final SingleFlight<StatsKey, List<StatsDto>> statsRequests;
+    private final CircuitBreaker circuitBreaker;
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private volatile StatsWireFormat wireFormat;
 
     @Autowired
-    public StatsClient(@Value("${stats-service.url}") String serverUrl) {
+    public StatsClient(@Value("${stats-service.url}") String serverUrl,
+                       StatsClientProperties properties,
+                       MeterRegistry meterRegistry) {
         log.info("url: " + serverUrl);
+        transport = StatsHttpTransport.create(properties.getHttp(), meterRegistry);
+        circuitBreaker = new CircuitBreaker(properties.getCircuitBreaker(), Clock.systemDefaultZone(), meterRegistry);
         restClient = RestClient.builder()
                 .baseUrl(serverUrl)
+                .requestFactory(transport.getRequestFactory())
+                .requestInterceptor(new StatsHttpMetrics(meterRegistry))
+                .messageConverters(converters -> {
+                    converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter);
+                    converters.add(StatsWireFormat.smileConverter());
+                })
                 .build();
         url = serverUrl;
+        wireFormat = properties.getWireFormat();
+        StatsClientProperties.Async async = properties.getAsync();
+        if (async.isEnabled()) {
+            HitSpool spool = async.getOverflowPolicy() == HitOverflowPolicy.SPILL
+                    ? new HitSpool(Path.of(async.getSpillDir()), async.getSpoolSegmentSize(), objectMapper)
+                    : null;
+            hitSender = new HitSender(this::saveHits, async, spool, this::saveHits, meterRegistry);
+        } else {
+            hitSender = null;
+        }
+        cache = properties.getCache().isEnabled()
+                ? new StatsCache(properties.getCache(), Clock.systemDefaultZone(), meterRegistry)
+                : null;
+        statsRequests = properties.getCoalescing().isEnabled()
+                ? new SingleFlight<>(properties.getCoalescing().getTimeout(), meterRegistry)
+                : null;
+    }
+
+    public void sendHit(HitDto hitDto) {
+        if (hitSender != null) {
+            hitSender.send(hitDto);
+        } else {
+            saveHit(hitDto);
+        }
     }
 
     public HitDto saveHit(HitDto hitDto) {
-        String requestUrl = url + "/hit";
-        return restClient.post()
-                .uri(requestUrl)
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(hitDto)
-                .retrieve()
-                .onStatus(HttpStatusCode::isError, (req, res) -> {
-                    throw new RuntimeException("StatsService ошибка: " + res.getStatusText());
-                })
-                .body(HitDto.class);
+        return post("/hit", hitDto, HitDto.class, headers -> { });
+    }
+
+    public long saveHits(List<HitDto> hits) {
+        Long saved = post("/hits/batch", hits, Long.class, headers -> { });
+        return saved != null ? saved : 0L;
     }
 
+    /**
+     * Отправка пачки из журнала: source и номер первого хита позволяют сервису отбросить
+     * уже сохраненные хиты, если пачка отправляется повторно.
+     */
+    public void saveHits(List<HitDto> hits, String source, long firstSequence) {
+        post("/hits/batch", hits, Long.class, headers -> {
+            headers.set(HIT_SOURCE_HEADER, source);
+            headers.set(HIT_SEQUENCE_HEADER, Long.toString(firstSequence));
+        });
+    }
+
+    /**
+     * При включенном кэше запросы до текущего момента обслуживаются по uri: из stats-service
+     * запрашиваются только отсутствующие в кэше uri.
+     */
     public List<StatsDto> getStats(String start, String end, List<String> uris, Boolean unique) {
+        if (cache == null || uris == null || uris.isEmpty() || !cache.isCacheable(end)) {
+            return fetchStats(start, end, uris, unique);
+        }
+        boolean uniqueHits = Boolean.TRUE.equals(unique);
+        List<StatsDto> stats = new ArrayList<>();
+        List<String> missing = cache.collect(new LinkedHashSet<>(uris), uniqueHits, start, stats);
+        if (!missing.isEmpty()) {
+            List<StatsDto> fetched = fetchStats(start, end, missing, unique);
+            cache.putAll(missing, uniqueHits, start, fetched);
+            stats.addAll(fetched);
+        }
+        stats.sort(Comparator.comparing(StatsDto::getHits).reversed());
+        return stats;
+    }
+
+    private List<StatsDto> fetchStats(String start, String end, List<String> uris, Boolean unique) {
+        if (statsRequests == null) {
+            return requestStats(start, end, uris, unique);
+        }
+        List<String> sortedUris = uris == null ? List.of() : uris.stream().sorted().toList();
+        return statsRequests.execute(new StatsKey(start, end, sortedUris, Boolean.TRUE.equals(unique)), () -> {
+            List<StatsDto> stats = requestStats(start, end, uris, unique);
+            return stats == null ? List.of() : List.copyOf(stats);
+        });
+    }
+
+    private List<StatsDto> requestStats(String start, String end, List<String> uris, Boolean unique) {
+        String fullUrl = statsUrl(start, end, uris, unique);
+        log.debug("URL для запроса: {}", fullUrl);
+
+        return circuitBreaker.call(() -> restClient.get()
+                .uri(fullUrl)
+                .accept(acceptTypes(wireFormat))
+                .retrieve()
+                .body(new ParameterizedTypeReference<List<StatsDto>>() {}));
+    }
+
+    /**
+     * Изменившиеся с курсора after счетчики уникальных просмотров приложения app. Пустой курсор
+     * означает выдачу всех счетчиков; в следующий запрос передается cursor из ответа.
+     */
+    public ViewsChangesDto getViewChanges(String after, String app, int limit) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(url)
+                .path("/views/changes")
+                .queryParam("app", app)
+                .queryParam("limit", limit);
+        if (after != null) {
+            builder.queryParam("after", after);
+        }
+        String fullUrl = builder.build().toUriString();
+        log.debug("URL для запроса просмотров: {}", fullUrl);
+
+        return circuitBreaker.call(() -> restClient.get()
+                .uri(fullUrl)
+                .accept(acceptTypes(wireFormat))
+                .retrieve()
+                .body(ViewsChangesDto.class));
+    }
+
+    /**
+     * Потоковое получение статистики: строки читаются по мере поступления, не загружая весь ответ в память.
+     */
+    public StatsIterator streamStats(String start, String end, List<String> uris, Boolean unique) {
+        String fullUrl = statsUrl(start, end, uris, unique);
+        log.debug("URL для потокового запроса: {}", fullUrl);
+
+        return circuitBreaker.call(() -> restClient.get()
+                .uri(fullUrl)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().isError()) {
+                        response.close();
+                        if (response.getStatusCode().is4xxClientError()) {
+                            throw HttpClientErrorException.create(response.getStatusCode(), response.getStatusText(),
+                                    response.getHeaders(), null, null);
+                        }
+                        throw new StatsUnavailableException("StatsService ошибка: " + response.getStatusText());
+                    }
+                    MappingIterator<StatsDto> rows = objectMapper.readerFor(StatsDto.class)
+                            .readValues(response.getBody());
+                    return new StatsIterator(rows, response);
+                }, false));
+    }
+
+    /**
+     * Отправка в согласованном формате. Если stats-service не принимает бинарный формат (415),
+     * клиент переходит на JSON до перезапуска и повторяет запрос.
+     */
+    private <T> T post(String path, Object body, Class<T> responseType, Consumer<HttpHeaders> headers) {
+        StatsWireFormat format = wireFormat;
+        try {
+            return circuitBreaker.call(() -> restClient.post()
+                    .uri(url + path)
+                    .headers(headers)
+                    .contentType(format.getMediaType())
+                    .accept(acceptTypes(format))
+                    .body(body)
+                    .retrieve()
+                    .onStatus(HttpStatusCode::is5xxServerError, (req, res) -> {
+                        throw new StatsUnavailableException("StatsService ошибка: " + res.getStatusText());
+                    })
+                    .body(responseType));
+        } catch (HttpClientErrorException.UnsupportedMediaType e) {
+            if (format == StatsWireFormat.JSON) {
+                throw e;
+            }
+            log.warn("StatsService не поддерживает формат {}, переключение на JSON", format);
+            wireFormat = StatsWireFormat.JSON;
+            return post(path, body, responseType, headers);
+        }
+    }
+
+    private static MediaType[] acceptTypes(StatsWireFormat format) {
+        return format == StatsWireFormat.JSON
+                ? new MediaType[]{MediaType.APPLICATION_JSON}
+                : new MediaType[]{format.getMediaType(), MediaType.APPLICATION_JSON};
+    }
+
+    private String statsUrl(String start, String end, List<String> uris, Boolean unique) {
         UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(url)
                 .path("/stats")
                 .queryParam("start", start)
@@ -53,18 +239,17 @@ public class StatsClient {
         if (uris != null && !uris.isEmpty()) {
             builder.queryParam("uris", String.join(",", uris));
         }
+        return builder.build().toUriString();
+    }
 
-        String fullUrl = builder.build().toUriString();
-        log.info("URL для запроса: {}", fullUrl);
-
-        List<StatsDto> stats = restClient.get()
-                .uri(fullUrl)
-                .retrieve()
-                .body(new ParameterizedTypeReference<List<StatsDto>>() {});
+    private record StatsKey(String start, String end, List<String> uris, boolean unique) {
+    }
 
-        log.info("=== Получены статистические данные ===");
-        stats.forEach(stat -> log.info("URI: {}, Hits: {}", stat.getUri(), stat.getHits()));
-        log.info("====================================");
-        return stats;
+    @PreDestroy
+    public void shutdown() {
+        if (hitSender != null) {
+            hitSender.close();
+        }
+        transport.close();
     }
 }
@@ -0,0 +1,71 @@
+package ru.practicum;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "stats-client")
+public class StatsClientProperties {
+    private final Async async = new Async();
+    private final Cache cache = new Cache();
+    private final Coalescing coalescing = new Coalescing();
+    private final Http http = new Http();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private StatsWireFormat wireFormat = StatsWireFormat.SMILE;
+
+    @Getter
+    @Setter
+    public static class Async {
+        private boolean enabled = false;
+        private int queueCapacity = 10_000;
+        private int batchSize = 100;
+        private Duration flushInterval = Duration.ofMillis(500);
+        private HitOverflowPolicy overflowPolicy = HitOverflowPolicy.SPILL;
+        private Duration blockTimeout = Duration.ofMillis(50);
+        private String spillDir = System.getProperty("java.io.tmpdir") + "/stats-client";
+        private int spoolSegmentSize = 4 * 1024 * 1024;
+        private Duration shutdownTimeout = Duration.ofSeconds(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Cache {
+        private boolean enabled = false;
+        private Duration ttl = Duration.ofSeconds(10);
+        private int maxSize = 10_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Coalescing {
+        private boolean enabled = true;
+        private Duration timeout = Duration.ofSeconds(3);
+    }
+
+    @Getter
+    @Setter
+    public static class Http {
+        private Duration connectTimeout = Duration.ofSeconds(1);
+        private Duration readTimeout = Duration.ofSeconds(3);
+        private Duration poolTimeout = Duration.ofMillis(500);
+        private Duration keepAlive = Duration.ofSeconds(30);
+        private int maxConnections = 50;
+        private int maxConnectionsPerRoute = 20;
+        private boolean http2 = false;
+    }
+
+    @Getter
+    @Setter
+    public static class CircuitBreaker {
+        private boolean enabled = true;
+        private int failureThreshold = 5;
+        private Duration openDuration = Duration.ofSeconds(10);
+        private int halfOpenProbes = 3;
+    }
+}
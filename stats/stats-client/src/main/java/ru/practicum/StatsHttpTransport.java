@@ -0,0 +1,95 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.net.http.HttpClient;
+
+/**
+ * HTTP-транспорт клиента статистики: пул соединений Apache HttpClient с ограничением на маршрут
+ * и строгими таймаутами либо, при stats-client.http.http2=true, JDK HttpClient с HTTP/2.
+ */
+@Slf4j
+public final class StatsHttpTransport implements AutoCloseable {
+    private final ClientHttpRequestFactory requestFactory;
+    private final AutoCloseable client;
+
+    private StatsHttpTransport(ClientHttpRequestFactory requestFactory, AutoCloseable client) {
+        this.requestFactory = requestFactory;
+        this.client = client;
+    }
+
+    public static StatsHttpTransport create(StatsClientProperties.Http config, MeterRegistry meterRegistry) {
+        return config.isHttp2() ? http2(config) : pooled(config, meterRegistry);
+    }
+
+    public ClientHttpRequestFactory getRequestFactory() {
+        return requestFactory;
+    }
+
+    @Override
+    public void close() {
+        try {
+            client.close();
+        } catch (Exception e) {
+            log.warn("Не удалось закрыть HTTP-клиент статистики: {}", e.getMessage());
+        }
+    }
+
+    private static StatsHttpTransport pooled(StatsClientProperties.Http config, MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(config.getMaxConnections())
+                .setMaxConnPerRoute(config.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(config.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(config.getReadTimeout()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        TimeValue keepAlive = TimeValue.of(config.getKeepAlive());
+        CloseableHttpClient client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(config.getPoolTimeout()))
+                        .setResponseTimeout(Timeout.of(config.getReadTimeout()))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> keepAlive.min(
+                        DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context)))
+                .evictIdleConnections(keepAlive)
+                .evictExpiredConnections()
+                .build();
+
+        Gauge.builder("stats.client.http.pool.leased", connectionManager, m -> m.getTotalStats().getLeased())
+                .register(meterRegistry);
+        Gauge.builder("stats.client.http.pool.pending", connectionManager, m -> m.getTotalStats().getPending())
+                .register(meterRegistry);
+        Gauge.builder("stats.client.http.pool.available", connectionManager, m -> m.getTotalStats().getAvailable())
+                .register(meterRegistry);
+        Gauge.builder("stats.client.http.pool.max", connectionManager, m -> m.getTotalStats().getMax())
+                .register(meterRegistry);
+        return new StatsHttpTransport(new HttpComponentsClientHttpRequestFactory(client), client);
+    }
+
+    private static StatsHttpTransport http2(StatsClientProperties.Http config) {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(config.getConnectTimeout())
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(client);
+        requestFactory.setReadTimeout(config.getReadTimeout());
+        return new StatsHttpTransport(requestFactory, client);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * Построчное чтение потоковой статистики (NDJSON). Ответ сервиса держится открытым,
+ * пока итератор не закрыт, поэтому его нужно использовать в try-with-resources.
+ */
+public class StatsIterator implements Iterator<StatsDto>, AutoCloseable {
+    private final MappingIterator<StatsDto> rows;
+    private final Closeable response;
+
+    public StatsIterator(MappingIterator<StatsDto> rows, Closeable response) {
+        this.rows = rows;
+        this.response = response;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return rows.hasNext();
+    }
+
+    @Override
+    public StatsDto next() {
+        return rows.next();
+    }
+
+    /**
+     * Ответ закрывается, даже если закрытие парсера завершилось ошибкой, иначе соединение не вернется в пул.
+     */
+    @Override
+    public void close() {
+        try {
+            try {
+                rows.close();
+            } finally {
+                response.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
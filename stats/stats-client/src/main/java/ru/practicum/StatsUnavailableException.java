@@ -0,0 +1,14 @@
+package ru.practicum;
+
+/**
+ * Сервис статистики недоступен: ошибка сети, таймаут, ответ 5xx или разомкнутый предохранитель.
+ */
+public class StatsUnavailableException extends RuntimeException {
+    public StatsUnavailableException(String message) {
+        super(message);
+    }
+
+    public StatsUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Общие настройки Smile для stats-client и stats-service: повторяющиеся app и uri кодируются ссылками,
+ * даты - массивом чисел вместо строки.
+ */
+public final class StatsSmileMapper {
+
+    private StatsSmileMapper() {
+    }
+
+    public static ObjectMapper create() {
+        return Jackson2ObjectMapperBuilder.smile()
+                .factory(SmileFactory.builder()
+                        .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                        .build())
+                .featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+}
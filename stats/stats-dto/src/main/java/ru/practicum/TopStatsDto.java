@@ -0,0 +1,18 @@
+package ru.practicum;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Оценка числа хитов по uri за окно: истинное значение лежит в диапазоне [hits - maxError, hits].
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TopStatsDto {
+    private String app;
+    private String uri;
+    private Long hits;
+    private Long maxError;
+}
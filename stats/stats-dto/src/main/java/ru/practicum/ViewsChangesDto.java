@@ -0,0 +1,20 @@
+package ru.practicum;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Пачка изменившихся счетчиков просмотров. Значения абсолютные, поэтому повторное применение пачки
+ * безопасно; cursor передается в следующий запрос, more означает, что изменения выданы не полностью.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ViewsChangesDto {
+    private List<ViewsDto> views;
+    private String cursor;
+    private boolean more;
+}
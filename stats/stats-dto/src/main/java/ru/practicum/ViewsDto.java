@@ -0,0 +1,17 @@
+package ru.practicum;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Текущее число уникальных просмотров uri за все время.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ViewsDto {
+    private String app;
+    private String uri;
+    private Long views;
+}
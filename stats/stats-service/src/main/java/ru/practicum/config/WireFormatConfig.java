@@ -0,0 +1,19 @@
+package ru.practicum.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import ru.practicum.StatsSmileMapper;
+
+/**
+ * Компактный бинарный формат Smile для клиентов, которые запрашивают его явно
+ * (application/x-jackson-smile); остальные по-прежнему получают JSON. Настройки общие с stats-client.
+ */
+@Configuration
+public class WireFormatConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+        return new MappingJackson2SmileHttpMessageConverter(StatsSmileMapper.create());
+    }
+}
@@ -1,17 +1,33 @@
 package ru.practicum.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.HitDto;
 import ru.practicum.StatsDto;
+import ru.practicum.TopStatsDto;
+import ru.practicum.ViewsChangesDto;
+import ru.practicum.exception.ValidationException;
 import ru.practicum.service.StatsService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 
@@ -19,7 +35,11 @@ import java.util.List;
 @RequiredArgsConstructor
 @RestController
 public class StatsController {
+    private static final String HIT_SOURCE_HEADER = "X-Hit-Source";
+    private static final String HIT_SEQUENCE_HEADER = "X-Hit-Sequence";
+
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
 
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping("/hit")
@@ -28,15 +48,93 @@ public class StatsController {
         return statsService.create(hitDto);
     }
 
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping(value = "/hits/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-jackson-smile"})
+    public long createHits(@RequestBody List<HitDto> hits,
+                           @RequestHeader(value = HIT_SOURCE_HEADER, required = false) String source,
+                           @RequestHeader(value = HIT_SEQUENCE_HEADER, required = false) Long sequence) {
+        log.info("Создание пачки из {} хитов в сервисе", hits.size());
+        return createAll(hits.iterator(), source, sequence);
+    }
+
+    @ResponseStatus(HttpStatus.CREATED)
+    @PostMapping(value = "/hits/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public long createHitsStream(InputStream body,
+                                 @RequestHeader(value = HIT_SOURCE_HEADER, required = false) String source,
+                                 @RequestHeader(value = HIT_SEQUENCE_HEADER, required = false) Long sequence)
+            throws IOException {
+        log.info("Создание потока хитов в сервисе");
+        try {
+            return createAll(objectMapper.readerFor(HitDto.class).readValues(body), source, sequence);
+        } catch (JsonProcessingException | RuntimeJsonMappingException e) {
+            throw new ValidationException("Некорректная строка NDJSON: " + e.getMessage());
+        }
+    }
+
+    private long createAll(Iterator<HitDto> hits, String source, Long sequence) {
+        if (source == null && sequence == null) {
+            return statsService.createAll(hits);
+        }
+        if (source == null || sequence == null) {
+            throw new ValidationException("Заголовки " + HIT_SOURCE_HEADER + " и " + HIT_SEQUENCE_HEADER
+                    + " передаются вместе");
+        }
+        return statsService.createAll(hits, source, sequence);
+    }
+
     @GetMapping("/stats")
     @ResponseStatus(HttpStatus.OK)
     public Collection<StatsDto> getStats(
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") @NotNull String start,
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") @NotNull String end,
             @RequestParam(required = false) List<String> uris,
-            @RequestParam(defaultValue = "false") Boolean unique
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(defaultValue = "false") Boolean approx
     ) {
-        log.info("Получение статистики по параметрам: start={}; end={}; uris={}; unique={}", start, end, uris, unique);
-        return statsService.getStats(start, end, uris, unique);
+        log.info("Получение статистики по параметрам: start={}; end={}; uris={}; unique={}; approx={}",
+                start, end, uris, unique, approx);
+        return statsService.getStats(start, end, uris, unique, approx);
+    }
+
+    @GetMapping("/stats/top")
+    public List<TopStatsDto> getTopStats(@RequestParam(defaultValue = "10") int n,
+                                         @RequestParam(defaultValue = "60") int window) {
+        log.info("Получение самых посещаемых uri: n={}; window={}", n, window);
+        return statsService.getTopStats(n, window);
+    }
+
+    @GetMapping("/views/changes")
+    public ViewsChangesDto getViewChanges(@RequestParam(required = false) String after,
+                                          @RequestParam(required = false) String app,
+                                          @RequestParam(defaultValue = "1000") int limit) {
+        log.info("Получение изменившихся просмотров: after={}; app={}; limit={}", after, app, limit);
+        return statsService.getViewChanges(after, app, limit);
+    }
+
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamStats(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") @NotNull String start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") @NotNull String end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(defaultValue = "false") Boolean approx,
+            HttpServletResponse response
+    ) throws IOException {
+        log.info("Потоковая выдача статистики по параметрам: start={}; end={}; uris={}; unique={}; approx={}",
+                start, end, uris, unique, approx);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        ObjectWriter writer = objectMapper.writerFor(StatsDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+        statsService.streamStats(start, end, uris, unique, approx, stat -> {
+            try {
+                writer.writeValue(generator, stat);
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generator.flush();
     }
 }
@@ -0,0 +1,55 @@
+package ru.practicum.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.Hit;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class HitBatchRepository {
+    private static final String INSERT_HIT = """
+            INSERT INTO hits (app_id, uri_id, ip, created) VALUES (?, ?, CAST(? AS inet), ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public int saveAll(List<Hit> hits) {
+        if (hits.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, hits.size(), (ps, hit) -> {
+            ps.setInt(1, hit.getAppId());
+            ps.setInt(2, hit.getUriId());
+            ps.setString(3, hit.getIp());
+            ps.setObject(4, hit.getTimestamp());
+        });
+        return hits.size();
+    }
+
+    public long findMaxId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM hits", Long.class);
+        return maxId != null ? maxId : 0;
+    }
+
+    public List<Hit> findAllAfter(long afterId, long toId, int limit) {
+        return jdbcTemplate.query("""
+                        SELECT id, app_id, uri_id, host(ip) AS ip, created
+                        FROM hits
+                        WHERE id > ? AND id <= ?
+                        ORDER BY id
+                        LIMIT ?
+                        """,
+                (rs, rowNum) -> new Hit(
+                        rs.getLong("id"),
+                        rs.getInt("app_id"),
+                        rs.getInt("uri_id"),
+                        null,
+                        null,
+                        rs.getString("ip"),
+                        rs.getTimestamp("created").toLocalDateTime()),
+                afterId, toId, limit);
+    }
+}
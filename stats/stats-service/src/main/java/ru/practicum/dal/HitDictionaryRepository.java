@@ -0,0 +1,77 @@
+package ru.practicum.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Словари приложений и uri: хиты и агрегаты хранят целочисленные идентификаторы вместо строк.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitDictionaryRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Добавляет отсутствующие значения в отдельной транзакции, чтобы выданные идентификаторы
+     * не пропали при откате записи хитов.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Map<String, Integer> saveAll(Table table, Collection<String> names) {
+        jdbcTemplate.batchUpdate("INSERT INTO %s (name) VALUES (:name) ON CONFLICT (name) DO NOTHING"
+                        .formatted(table.getName()),
+                new TreeSet<>(names).stream()
+                        .map(name -> new MapSqlParameterSource("name", name))
+                        .toArray(MapSqlParameterSource[]::new));
+        return findIds(table, names);
+    }
+
+    public Map<String, Integer> findIds(Table table, Collection<String> names) {
+        Map<String, Integer> ids = new HashMap<>();
+        if (names.isEmpty()) {
+            return ids;
+        }
+        jdbcTemplate.query("SELECT id, name FROM %s WHERE name IN (:names)".formatted(table.getName()),
+                new MapSqlParameterSource("names", names),
+                rs -> {
+                    ids.put(rs.getString("name"), rs.getInt("id"));
+                });
+        return ids;
+    }
+
+    public Map<Integer, String> findNames(Table table, Collection<Integer> ids) {
+        Map<Integer, String> names = new HashMap<>();
+        if (ids.isEmpty()) {
+            return names;
+        }
+        jdbcTemplate.query("SELECT id, name FROM %s WHERE id IN (:ids)".formatted(table.getName()),
+                new MapSqlParameterSource("ids", ids),
+                rs -> {
+                    names.put(rs.getInt("id"), rs.getString("name"));
+                });
+        return names;
+    }
+
+    public enum Table {
+        APPS("apps"),
+        URIS("uris");
+
+        private final String name;
+
+        Table(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
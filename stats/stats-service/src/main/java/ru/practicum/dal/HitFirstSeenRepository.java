@@ -0,0 +1,115 @@
+package ru.practicum.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.Hit;
+import ru.practicum.model.HitCount;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Время первого обращения каждого ip к (app, uri). Если до начала диапазона у пары (app, uri)
+ * обращений не было, число уникальных ip в диапазоне равно числу строк с first_seen внутри него;
+ * для остальных пар уникальные ip считаются по сырым хитам.
+ * Вместе с новыми строками увеличивается счетчик уникальных просмотров uri в uri_views.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitFirstSeenRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void addAll(List<Hit> hits) {
+        Map<FirstSeenKey, LocalDateTime> firstSeen = new TreeMap<>(Comparator.comparingInt(FirstSeenKey::appId)
+                .thenComparingInt(FirstSeenKey::uriId)
+                .thenComparing(FirstSeenKey::ip));
+        for (Hit hit : hits) {
+            firstSeen.merge(new FirstSeenKey(hit.getAppId(), hit.getUriId(), hit.getIp()), hit.getTimestamp(),
+                    (a, b) -> a.isBefore(b) ? a : b);
+        }
+        if (firstSeen.isEmpty()) {
+            return;
+        }
+        Object[] appIds = new Object[firstSeen.size()];
+        Object[] uriIds = new Object[firstSeen.size()];
+        Object[] ips = new Object[firstSeen.size()];
+        Object[] times = new Object[firstSeen.size()];
+        int i = 0;
+        for (Map.Entry<FirstSeenKey, LocalDateTime> entry : firstSeen.entrySet()) {
+            appIds[i] = entry.getKey().appId();
+            uriIds[i] = entry.getKey().uriId();
+            ips[i] = entry.getKey().ip();
+            times[i] = entry.getValue().toString();
+            i++;
+        }
+        jdbcTemplate.getJdbcOperations().update(connection -> {
+            PreparedStatement statement = connection.prepareStatement("""
+                    WITH upserted AS (
+                        INSERT INTO hit_first_seen (app_id, uri_id, ip, first_seen)
+                        SELECT app_id, uri_id, CAST(ip AS inet), CAST(first_seen AS timestamp)
+                        FROM unnest(?, ?, ?, ?) AS t(app_id, uri_id, ip, first_seen)
+                        ON CONFLICT (app_id, uri_id, ip) DO UPDATE SET first_seen = EXCLUDED.first_seen
+                        WHERE EXCLUDED.first_seen < hit_first_seen.first_seen
+                        RETURNING app_id, uri_id, xmax = 0 AS inserted
+                    )
+                    INSERT INTO uri_views (app_id, uri_id, views, changed)
+                    SELECT app_id, uri_id, COUNT(*), pg_current_xact_id()
+                    FROM upserted
+                    WHERE inserted
+                    GROUP BY app_id, uri_id
+                    ORDER BY app_id, uri_id
+                    ON CONFLICT (app_id, uri_id) DO UPDATE
+                    SET views = uri_views.views + EXCLUDED.views, changed = EXCLUDED.changed
+                    """);
+            statement.setArray(1, connection.createArrayOf("integer", appIds));
+            statement.setArray(2, connection.createArrayOf("integer", uriIds));
+            statement.setArray(3, connection.createArrayOf("text", ips));
+            statement.setArray(4, connection.createArrayOf("text", times));
+            return statement;
+        });
+    }
+
+    public void findUniqueStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                Consumer<HitCount> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", start)
+                .addValue("end", end);
+        String uriFilter = "";
+        if (uriIds != null && !uriIds.isEmpty()) {
+            params.addValue("uriIds", uriIds);
+            uriFilter = " AND uri_id IN (:uriIds)";
+        }
+        String sql = """
+                WITH old AS (
+                    SELECT DISTINCT app_id, uri_id
+                    FROM hit_first_seen
+                    WHERE first_seen < :start%1$s
+                )
+                SELECT app_id, uri_id, COUNT(*) AS hits
+                FROM hit_first_seen f
+                WHERE first_seen >= :start AND first_seen <= :end%1$s
+                AND NOT EXISTS (SELECT 1 FROM old o WHERE o.app_id = f.app_id AND o.uri_id = f.uri_id)
+                GROUP BY app_id, uri_id
+                UNION ALL
+                SELECT app_id, uri_id, COUNT(DISTINCT ip) AS hits
+                FROM hits h
+                WHERE created BETWEEN :start AND :end%1$s
+                AND EXISTS (SELECT 1 FROM old o WHERE o.app_id = h.app_id AND o.uri_id = h.uri_id)
+                GROUP BY app_id, uri_id
+                ORDER BY hits DESC
+                """.formatted(uriFilter);
+        jdbcTemplate.query(sql, params, rs -> {
+            consumer.accept(new HitCount(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits")));
+        });
+    }
+
+    private record FirstSeenKey(int appId, int uriId, String ip) {
+    }
+}
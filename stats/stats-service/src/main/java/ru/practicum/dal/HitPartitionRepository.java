@@ -0,0 +1,96 @@
+package ru.practicum.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Помесячные секции таблицы hits. Строки вне существующих секций попадают в hits_default
+ * и переносятся в новую секцию при ее создании.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitPartitionRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<String> findPartitionNames() {
+        return jdbcTemplate.queryForList("""
+                SELECT c.relname
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'hits'::regclass
+                """, String.class);
+    }
+
+    public List<LocalDate> findDefaultMonths() {
+        return jdbcTemplate.query("""
+                        SELECT DISTINCT date_trunc('month', created)::timestamp AS month
+                        FROM hits_default
+                        """,
+                (rs, rowNum) -> rs.getTimestamp("month").toLocalDateTime().toLocalDate());
+    }
+
+    @Transactional
+    public void createPartition(String name, LocalDate from, LocalDate to) {
+        jdbcTemplate.execute("CREATE TABLE %s (LIKE hits INCLUDING DEFAULTS INCLUDING CONSTRAINTS)".formatted(name));
+        jdbcTemplate.update("""
+                WITH moved AS (
+                    DELETE FROM hits_default
+                    WHERE created >= ? AND created < ?
+                    RETURNING *
+                )
+                INSERT INTO %s SELECT * FROM moved
+                """.formatted(name), from.atStartOfDay(), to.atStartOfDay());
+        jdbcTemplate.execute("ALTER TABLE hits ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s')"
+                .formatted(name, from, to));
+    }
+
+    public void dropPartition(String name) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS %s".formatted(name));
+    }
+
+    /**
+     * Удаляет данные старше границы хранения из секции по умолчанию и производных таблиц.
+     * Время первого посещения для удаленных строк и счетчики просмотров uri пересчитываются
+     * по оставшимся хитам.
+     */
+    @Transactional
+    public void deleteBefore(LocalDateTime cutoff) {
+        jdbcTemplate.update("DELETE FROM hits_default WHERE created < ?", cutoff);
+        jdbcTemplate.update("DELETE FROM hits_minute WHERE bucket < ?", cutoff);
+        jdbcTemplate.update("DELETE FROM hits_hour WHERE bucket < ?", cutoff);
+        jdbcTemplate.update("DELETE FROM hit_sketches WHERE bucket < ?", cutoff);
+        jdbcTemplate.update("""
+                WITH expired AS (
+                    DELETE FROM hit_first_seen
+                    WHERE first_seen < ?
+                    RETURNING app_id, uri_id, ip
+                )
+                INSERT INTO hit_first_seen (app_id, uri_id, ip, first_seen)
+                SELECT h.app_id, h.uri_id, h.ip, MIN(h.created)
+                FROM hits h
+                JOIN expired e ON e.app_id = h.app_id AND e.uri_id = h.uri_id AND e.ip = h.ip
+                WHERE h.created >= ?
+                GROUP BY h.app_id, h.uri_id, h.ip
+                ON CONFLICT (app_id, uri_id, ip) DO UPDATE SET first_seen = EXCLUDED.first_seen
+                WHERE EXCLUDED.first_seen < hit_first_seen.first_seen
+                """, cutoff, cutoff);
+        jdbcTemplate.update("""
+                WITH counts AS (
+                    SELECT app_id, uri_id, COUNT(*) AS views
+                    FROM hit_first_seen
+                    GROUP BY app_id, uri_id
+                )
+                UPDATE uri_views v
+                SET views = COALESCE(c.views, 0), changed = pg_current_xact_id()
+                FROM uri_views u
+                LEFT JOIN counts c ON c.app_id = u.app_id AND c.uri_id = u.uri_id
+                WHERE v.app_id = u.app_id AND v.uri_id = u.uri_id AND v.views <> COALESCE(c.views, 0)
+                """);
+    }
+}
@@ -0,0 +1,149 @@
+package ru.practicum.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.Hit;
+import ru.practicum.model.HitCount;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static ru.practicum.model.TimeBuckets.ceil;
+
+/**
+ * Поминутные и почасовые агрегаты хитов. Запрос статистики берет целые корзины из агрегатов,
+ * а неполные минуты на краях диапазона досчитывает по сырым строкам hits.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitRollupRepository {
+    private static final String UPSERT = """
+            INSERT INTO %s (uri_id, app_id, bucket, hits)
+            VALUES (:uriId, :appId, :bucket, :hits)
+            ON CONFLICT (uri_id, bucket, app_id) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits
+            """;
+
+    private static final RowMapper<HitCount> HIT_COUNT_ROW_MAPPER = (rs, rowNum) ->
+            new HitCount(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void addAll(List<Hit> hits) {
+        upsert("hits_minute", hits, ChronoUnit.MINUTES);
+        upsert("hits_hour", hits, ChronoUnit.HOURS);
+    }
+
+    public void findStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, Consumer<HitCount> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", start)
+                .addValue("end", end);
+        String uriFilter = "";
+        if (uriIds != null && !uriIds.isEmpty()) {
+            params.addValue("uriIds", uriIds);
+            uriFilter = " AND uri_id IN (:uriIds)";
+        }
+
+        LocalDateTime firstMinute = ceil(start, ChronoUnit.MINUTES);
+        LocalDateTime lastMinute = end.truncatedTo(ChronoUnit.MINUTES);
+        if (!firstMinute.isBefore(lastMinute)) {
+            String sql = """
+                    SELECT app_id, uri_id, COUNT(*) AS hits
+                    FROM hits
+                    WHERE created BETWEEN :start AND :end%s
+                    GROUP BY app_id, uri_id
+                    ORDER BY hits DESC
+                    """.formatted(uriFilter);
+            jdbcTemplate.query(sql, params, rs -> {
+                consumer.accept(HIT_COUNT_ROW_MAPPER.mapRow(rs, rs.getRow()));
+            });
+            return;
+        }
+
+        LocalDateTime firstHour = ceil(firstMinute, ChronoUnit.HOURS);
+        LocalDateTime lastHour = lastMinute.truncatedTo(ChronoUnit.HOURS);
+        if (!firstHour.isBefore(lastHour)) {
+            firstHour = lastMinute;
+            lastHour = lastMinute;
+        }
+        params.addValue("firstMinute", firstMinute)
+                .addValue("lastMinute", lastMinute)
+                .addValue("firstHour", firstHour)
+                .addValue("lastHour", lastHour);
+
+        String sql = """
+                SELECT app_id, uri_id, SUM(hits) AS hits
+                FROM (
+                    SELECT app_id, uri_id, COUNT(*) AS hits
+                    FROM hits
+                    WHERE ((created >= :start AND created < :firstMinute)
+                        OR (created >= :lastMinute AND created <= :end))%1$s
+                    GROUP BY app_id, uri_id
+                    UNION ALL
+                    SELECT app_id, uri_id, SUM(hits) AS hits
+                    FROM hits_minute
+                    WHERE ((bucket >= :firstMinute AND bucket < :firstHour)
+                        OR (bucket >= :lastHour AND bucket < :lastMinute))%1$s
+                    GROUP BY app_id, uri_id
+                    UNION ALL
+                    SELECT app_id, uri_id, SUM(hits) AS hits
+                    FROM hits_hour
+                    WHERE bucket >= :firstHour AND bucket < :lastHour%1$s
+                    GROUP BY app_id, uri_id
+                ) AS parts
+                GROUP BY app_id, uri_id
+                ORDER BY hits DESC
+                """.formatted(uriFilter);
+        jdbcTemplate.query(sql, params, rs -> {
+            consumer.accept(HIT_COUNT_ROW_MAPPER.mapRow(rs, rs.getRow()));
+        });
+    }
+
+    public void forEachMinute(LocalDateTime from, MinuteConsumer consumer) {
+        jdbcTemplate.query("""
+                        SELECT app_id, uri_id, bucket, hits
+                        FROM hits_minute
+                        WHERE bucket >= :from
+                        """,
+                new MapSqlParameterSource("from", from),
+                rs -> {
+                    consumer.accept(rs.getInt("app_id"), rs.getInt("uri_id"),
+                            rs.getTimestamp("bucket").toLocalDateTime(), rs.getLong("hits"));
+                });
+    }
+
+    private void upsert(String table, List<Hit> hits, ChronoUnit unit) {
+        Map<BucketKey, Long> counts = new TreeMap<>(Comparator.comparingInt(BucketKey::uriId)
+                .thenComparing(BucketKey::bucket)
+                .thenComparingInt(BucketKey::appId));
+        for (Hit hit : hits) {
+            BucketKey key = new BucketKey(hit.getUriId(), hit.getAppId(), hit.getTimestamp().truncatedTo(unit));
+            counts.merge(key, 1L, Long::sum);
+        }
+        List<MapSqlParameterSource> batch = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> batch.add(new MapSqlParameterSource()
+                .addValue("uriId", key.uriId())
+                .addValue("appId", key.appId())
+                .addValue("bucket", key.bucket())
+                .addValue("hits", count)));
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT.formatted(table), batch.toArray(MapSqlParameterSource[]::new));
+        }
+    }
+
+    @FunctionalInterface
+    public interface MinuteConsumer {
+        void accept(int appId, int uriId, LocalDateTime bucket, long hits);
+    }
+
+    private record BucketKey(int uriId, int appId, LocalDateTime bucket) {
+    }
+}
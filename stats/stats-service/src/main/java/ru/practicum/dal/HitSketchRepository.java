@@ -0,0 +1,134 @@
+package ru.practicum.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.sketch.HyperLogLog;
+import ru.practicum.sketch.SketchKey;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class HitSketchRepository {
+    private static final int LOCK_CHUNK_SIZE = 500;
+    private static final byte[] EMPTY_SKETCH = new HyperLogLog().toBytes();
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Сливает скетчи с сохраненными: строки сначала создаются пустыми, затем блокируются в порядке ключа,
+     * поэтому параллельные слияния не теряют регистры и не взаимоблокируются.
+     */
+    @Transactional
+    public void mergeAll(Map<SketchKey, HyperLogLog> sketches) {
+        List<SketchKey> keys = new ArrayList<>(sketches.keySet());
+        keys.sort(Comparator.comparingInt(SketchKey::uriId)
+                .thenComparing(SketchKey::bucket)
+                .thenComparingInt(SketchKey::appId));
+
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO hit_sketches (uri_id, app_id, bucket, sketch)
+                        VALUES (:uriId, :appId, :bucket, :sketch)
+                        ON CONFLICT (uri_id, bucket, app_id) DO NOTHING
+                        """,
+                keys.stream()
+                        .map(key -> keyParams(key).addValue("sketch", EMPTY_SKETCH))
+                        .toArray(MapSqlParameterSource[]::new));
+
+        for (int from = 0; from < keys.size(); from += LOCK_CHUNK_SIZE) {
+            List<SketchKey> chunk = keys.subList(from, Math.min(from + LOCK_CHUNK_SIZE, keys.size()));
+            Map<SketchKey, HyperLogLog> stored = new HashMap<>();
+            jdbcTemplate.query("""
+                            SELECT uri_id, app_id, bucket, sketch
+                            FROM hit_sketches
+                            WHERE (uri_id, bucket, app_id) IN (:keys)
+                            ORDER BY uri_id, bucket, app_id
+                            FOR UPDATE
+                            """,
+                    new MapSqlParameterSource("keys", chunk.stream()
+                            .map(key -> new Object[]{key.uriId(), key.bucket(), key.appId()})
+                            .toList()),
+                    rs -> {
+                        SketchKey key = new SketchKey(rs.getInt("uri_id"), rs.getInt("app_id"),
+                                rs.getTimestamp("bucket").toLocalDateTime());
+                        stored.put(key, HyperLogLog.fromBytes(rs.getBytes("sketch")));
+                    });
+            jdbcTemplate.batchUpdate("""
+                            UPDATE hit_sketches SET sketch = :sketch
+                            WHERE uri_id = :uriId AND bucket = :bucket AND app_id = :appId
+                            """,
+                    chunk.stream()
+                            .map(key -> {
+                                HyperLogLog sketch = stored.getOrDefault(key, new HyperLogLog());
+                                sketch.merge(sketches.get(key));
+                                return keyParams(key).addValue("sketch", sketch.toBytes());
+                            })
+                            .toArray(MapSqlParameterSource[]::new));
+        }
+    }
+
+    public void forEachSketch(LocalDateTime from, LocalDateTime to, List<Integer> uriIds, SketchConsumer consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", from)
+                .addValue("to", to);
+        String sql = """
+                SELECT app_id, uri_id, sketch
+                FROM hit_sketches
+                WHERE bucket >= :from AND bucket < :to%s
+                """.formatted(uriFilter(uriIds, params));
+        jdbcTemplate.query(sql, params, rs -> {
+            consumer.accept(rs.getInt("app_id"), rs.getInt("uri_id"), HyperLogLog.fromBytes(rs.getBytes("sketch")));
+        });
+    }
+
+    public void forEachDistinctIp(LocalDateTime start, LocalDateTime firstHour, LocalDateTime lastHour,
+                                  LocalDateTime end, List<Integer> uriIds, HitConsumer consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", start)
+                .addValue("firstHour", firstHour)
+                .addValue("lastHour", lastHour)
+                .addValue("end", end);
+        String sql = """
+                SELECT DISTINCT app_id, uri_id, host(ip) AS ip
+                FROM hits
+                WHERE ((created >= :start AND created < :firstHour)
+                    OR (created >= :lastHour AND created <= :end))%s
+                """.formatted(uriFilter(uriIds, params));
+        jdbcTemplate.query(sql, params, rs -> {
+            consumer.accept(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getString("ip"));
+        });
+    }
+
+    private static String uriFilter(List<Integer> uriIds, MapSqlParameterSource params) {
+        if (uriIds == null || uriIds.isEmpty()) {
+            return "";
+        }
+        params.addValue("uriIds", uriIds);
+        return " AND uri_id IN (:uriIds)";
+    }
+
+    private static MapSqlParameterSource keyParams(SketchKey key) {
+        return new MapSqlParameterSource()
+                .addValue("uriId", key.uriId())
+                .addValue("appId", key.appId())
+                .addValue("bucket", key.bucket());
+    }
+
+    @FunctionalInterface
+    public interface SketchConsumer {
+        void accept(int appId, int uriId, HyperLogLog sketch);
+    }
+
+    @FunctionalInterface
+    public interface HitConsumer {
+        void accept(int appId, int uriId, String ip);
+    }
+}
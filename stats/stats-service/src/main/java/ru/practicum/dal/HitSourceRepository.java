@@ -0,0 +1,31 @@
+package ru.practicum.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Номер последнего сохраненного хита для каждого журнала клиента.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitSourceRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Блокирует строку журнала до конца транзакции, чтобы параллельные повторы одной пачки
+     * не сохранили хиты дважды.
+     */
+    public long lockLastSequence(String source) {
+        jdbcTemplate.update("INSERT INTO hit_sources (source, last_seq) VALUES (?, 0) ON CONFLICT DO NOTHING",
+                source);
+        Long lastSequence = jdbcTemplate.queryForObject(
+                "SELECT last_seq FROM hit_sources WHERE source = ? FOR UPDATE", Long.class, source);
+        return lastSequence != null ? lastSequence : 0L;
+    }
+
+    public void updateLastSequence(String source, long lastSequence) {
+        jdbcTemplate.update("UPDATE hit_sources SET last_seq = GREATEST(last_seq, ?) WHERE source = ?",
+                lastSequence, source);
+    }
+}
@@ -0,0 +1,50 @@
+package ru.practicum.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.StatsMigration;
+
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class StatsMigrationRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<StatsMigration> findByName(String name) {
+        return jdbcTemplate.query("""
+                        SELECT name, last_id, target_id, completed
+                        FROM stats_migrations
+                        WHERE name = ?
+                        """,
+                (rs, rowNum) -> new StatsMigration(
+                        rs.getString("name"),
+                        rs.getLong("last_id"),
+                        rs.getLong("target_id"),
+                        rs.getBoolean("completed")),
+                name).stream().findFirst();
+    }
+
+    public void updateProgress(String name, long lastId, boolean completed) {
+        jdbcTemplate.update("UPDATE stats_migrations SET last_id = ?, completed = ? WHERE name = ?",
+                lastId, completed, name);
+    }
+
+    public void reopen(String name, long targetId) {
+        jdbcTemplate.update("""
+                        UPDATE stats_migrations
+                        SET target_id = GREATEST(target_id, ?), completed = last_id >= GREATEST(target_id, ?)
+                        WHERE name = ?
+                        """,
+                targetId, targetId, name);
+    }
+
+    public void advance(String name, long lastId) {
+        jdbcTemplate.update("""
+                        UPDATE stats_migrations SET last_id = ?, target_id = ?
+                        WHERE name = ? AND completed AND last_id < ?
+                        """,
+                lastId, lastId, name, lastId);
+    }
+}
@@ -1,41 +1,46 @@
 package ru.practicum.dal;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
-import ru.practicum.StatsDto;
 import ru.practicum.model.Hit;
+import ru.practicum.model.HitCount;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface StatsRepository extends JpaRepository<Hit, Long> {
 
     @Query(value = """
-        SELECT new ru.practicum.StatsDto(h.app, h.uri, COUNT(DISTINCT h.ip) AS quantity)
+        SELECT new ru.practicum.model.HitCount(h.appId, h.uriId, COUNT(DISTINCT h.ip) AS quantity)
         FROM Hit h
         WHERE h.timestamp BETWEEN :start AND :end
-        AND (:uris IS NULL OR h.uri IN :uris)
-        GROUP BY h.app, h.uri
+        AND (:uriIds IS NULL OR h.uriId IN :uriIds)
+        GROUP BY h.appId, h.uriId
         ORDER BY quantity DESC
     """)
-    List<StatsDto> findUniqueStatsByUrisAndTimestampBetween(
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<HitCount> findUniqueStatsByUrisAndTimestampBetween(
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end,
-            @Param("uris") List<String> uris
+            @Param("uriIds") List<Integer> uriIds
     );
 
     @Query(value = """
-        SELECT new ru.practicum.StatsDto(h.app, h.uri, COUNT(h.ip) AS quantity)
+        SELECT new ru.practicum.model.HitCount(h.appId, h.uriId, COUNT(h.ip) AS quantity)
         FROM Hit h
         WHERE h.timestamp BETWEEN :start AND :end
-        AND (:uris IS NULL OR h.uri IN :uris)
-        GROUP BY h.app, h.uri
+        AND (:uriIds IS NULL OR h.uriId IN :uriIds)
+        GROUP BY h.appId, h.uriId
         ORDER BY quantity DESC
     """)
-    List<StatsDto> findStatsByUrisAndTimestampBetween(
+    List<HitCount> findStatsByUrisAndTimestampBetween(
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end,
-            @Param("uris") List<String> uris
+            @Param("uriIds") List<Integer> uriIds
     );
 }
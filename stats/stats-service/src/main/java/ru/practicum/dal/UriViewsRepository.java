@@ -0,0 +1,50 @@
+package ru.practicum.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.UriViews;
+
+import java.util.List;
+
+/**
+ * Счетчики уникальных просмотров uri. changed - идентификатор транзакции последнего изменения,
+ * строки выдаются в порядке (changed, app_id, uri_id) только ниже горизонта: транзакции с меньшими
+ * идентификаторами уже завершены, поэтому курсор не пропустит изменения, зафиксированные позже.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UriViewsRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public String findHorizon() {
+        return jdbcTemplate.getJdbcOperations().queryForObject(
+                "SELECT CAST(pg_snapshot_xmin(pg_current_snapshot()) AS text)", String.class);
+    }
+
+    public List<UriViews> findChanges(String afterChanged, int afterAppId, int afterUriId, String horizon,
+                                      Integer appId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("changed", afterChanged)
+                .addValue("appId", afterAppId)
+                .addValue("uriId", afterUriId)
+                .addValue("horizon", horizon)
+                .addValue("limit", limit);
+        String appFilter = "";
+        if (appId != null) {
+            params.addValue("filterAppId", appId);
+            appFilter = " AND app_id = :filterAppId";
+        }
+        return jdbcTemplate.query("""
+                        SELECT app_id, uri_id, views, CAST(changed AS text) AS changed
+                        FROM uri_views
+                        WHERE (changed, app_id, uri_id) > (CAST(:changed AS xid8), :appId, :uriId)
+                        AND changed < CAST(:horizon AS xid8)%s
+                        ORDER BY changed, app_id, uri_id
+                        LIMIT :limit
+                        """.formatted(appFilter), params,
+                (rs, rowNum) -> new UriViews(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("views"),
+                        rs.getString("changed")));
+    }
+}
@@ -2,9 +2,10 @@ package ru.practicum.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 
@@ -13,32 +14,32 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 public class GlobalExceptionHandler {
 
     @ExceptionHandler(ValidationException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ApiError validationHandler(final ValidationException e) {
+    public ResponseEntity<ApiError> validationHandler(final ValidationException e) {
         log.error("Ошибка при валидации данных: {}", e.getMessage());
-        return ApiError.builder()
-                .errorCode(HttpStatus.BAD_REQUEST.value())
-                .description(e.getMessage())
-                .build();
+        return error(HttpStatus.BAD_REQUEST, e.getMessage());
     }
 
     @ExceptionHandler(MissingServletRequestParameterException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ApiError handleMissingParams(MissingServletRequestParameterException e) {
+    public ResponseEntity<ApiError> handleMissingParams(MissingServletRequestParameterException e) {
         log.error("Отсутствует обязательный параметр запроса: {}", e.getMessage());
-        return ApiError.builder()
-                .errorCode(HttpStatus.BAD_REQUEST.value())
-                .description("Отсутствует обязательный параметр: " + e.getParameterName())
-                .build();
+        return error(HttpStatus.BAD_REQUEST, "Отсутствует обязательный параметр: " + e.getParameterName());
     }
 
     @ExceptionHandler
-    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
-    public ApiError handler(Exception e) {
+    public ResponseEntity<ApiError> handler(Exception e) {
         log.error("Внутренняя ошибка сервера: {}", e.getMessage(), e);
-        return ApiError.builder()
-                .errorCode(HttpStatus.INTERNAL_SERVER_ERROR.value())
-                .description("Внутренняя ошибка сервера")
-                .build();
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, "Внутренняя ошибка сервера");
+    }
+
+    /**
+     * Ошибки всегда отдаются в JSON, в том числе на запросы потоковой статистики (NDJSON).
+     */
+    private static ResponseEntity<ApiError> error(HttpStatus status, String description) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(ApiError.builder()
+                        .errorCode(status.value())
+                        .description(description)
+                        .build());
     }
 }
@@ -7,13 +7,29 @@ import java.time.LocalDateTime;
 
 public class HitMapper {
 
+    /**
+     * Одиночный хит записывается со временем получения, время клиента не используется.
+     */
     public static Hit toHit(HitDto hitDto) {
+        return toHit(hitDto, LocalDateTime.now());
+    }
+
+    /**
+     * Хит из пачки сохраняет время клиента: пачка могла ждать отправки в буфере или журнале.
+     */
+    public static Hit toBatchHit(HitDto hitDto) {
+        return toHit(hitDto, hitDto.getTimeStamp() != null ? hitDto.getTimeStamp() : LocalDateTime.now());
+    }
+
+    private static Hit toHit(HitDto hitDto, LocalDateTime timestamp) {
         return new Hit(
                 hitDto.getId(),
+                null,
+                null,
                 hitDto.getApp(),
                 hitDto.getUri(),
                 hitDto.getIp(),
-                LocalDateTime.now());
+                timestamp);
     }
 
     public static HitDto toHitDto(Hit hit) {
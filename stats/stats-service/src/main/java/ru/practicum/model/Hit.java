@@ -3,6 +3,7 @@ package ru.practicum.model;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnTransformer;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.LocalDateTime;
@@ -18,8 +19,15 @@ public class Hit {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+    @Column(name = "app_id")
+    private Integer appId;
+    @Column(name = "uri_id")
+    private Integer uriId;
+    @Transient
     private String app;
+    @Transient
     private String uri;
+    @ColumnTransformer(read = "host(ip)", write = "CAST(? AS inet)")
     private String ip;
     @Column(name = "created")
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
@@ -0,0 +1,33 @@
+package ru.practicum.model;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.regex.Pattern;
+
+/**
+ * Разбор ip-адресов без обращения к DNS: IPv4 принимается только в виде четырех десятичных октетов,
+ * IPv6 — в любой текстовой форме без зоны.
+ */
+public class IpAddresses {
+    private static final Pattern IPV4 = Pattern.compile(
+            "((25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)\\.){3}(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)");
+
+    public static String normalize(String ip) {
+        return parse(ip).getHostAddress();
+    }
+
+    public static byte[] toBytes(String ip) {
+        return parse(ip).getAddress();
+    }
+
+    private static InetAddress parse(String ip) {
+        if (ip == null || !(IPV4.matcher(ip).matches() || ip.indexOf(':') >= 0 && ip.indexOf('%') < 0)) {
+            throw new IllegalArgumentException("Некорректный ip-адрес: " + ip);
+        }
+        try {
+            return InetAddress.getByName(ip);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Некорректный ip-адрес: " + ip);
+        }
+    }
+}
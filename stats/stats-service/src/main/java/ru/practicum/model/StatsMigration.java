@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record StatsMigration(String name, long lastId, long targetId, boolean completed) {
+}
@@ -0,0 +1,4 @@
+package ru.practicum.model;
+
+public record UriViews(int appId, int uriId, long views, String changed) {
+}
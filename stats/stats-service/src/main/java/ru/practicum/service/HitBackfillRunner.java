@@ -0,0 +1,63 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.dal.HitBatchRepository;
+import ru.practicum.dal.StatsMigrationRepository;
+import ru.practicum.model.Hit;
+import ru.practicum.model.StatsMigration;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Порционное заполнение производных таблиц по уже сохраненным хитам. Граница миграции (target_id)
+ * фиксируется в schema.sql при первом запуске, более новые хиты попадают в таблицы при записи.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitBackfillRunner {
+    private final HitBatchRepository hitBatchRepository;
+    private final StatsMigrationRepository statsMigrationRepository;
+
+    /**
+     * Обрабатывает очередную порцию хитов и возвращает true, когда миграция завершена.
+     */
+    @Transactional
+    public boolean runChunk(String name, int chunkSize, Consumer<List<Hit>> action) {
+        StatsMigration migration = statsMigrationRepository.findByName(name).orElse(null);
+        if (migration == null || migration.completed()) {
+            return true;
+        }
+        List<Hit> hits = hitBatchRepository.findAllAfter(migration.lastId(), migration.targetId(), chunkSize);
+        if (hits.isEmpty()) {
+            statsMigrationRepository.updateProgress(name, migration.targetId(), true);
+            log.info("Миграция {} завершена", name);
+            return true;
+        }
+        action.accept(hits);
+        statsMigrationRepository.updateProgress(name, hits.getLast().getId(), false);
+        return false;
+    }
+
+    /**
+     * Продлевает миграцию до последнего сохраненного хита; пройденная часть не повторяется.
+     */
+    public void reopen(String name) {
+        statsMigrationRepository.reopen(name, hitBatchRepository.findMaxId());
+    }
+
+    /**
+     * Отмечает завершенную миграцию пройденной до lastId: эти хиты уже учтены при записи.
+     */
+    public void advance(String name, long lastId) {
+        statsMigrationRepository.advance(name, lastId);
+    }
+
+    public long findLastHitId() {
+        return hitBatchRepository.findMaxId();
+    }
+}
@@ -0,0 +1,161 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.StatsDto;
+import ru.practicum.ViewsDto;
+import ru.practicum.dal.HitDictionaryRepository;
+import ru.practicum.dal.HitDictionaryRepository.Table;
+import ru.practicum.model.Hit;
+import ru.practicum.model.HitCount;
+import ru.practicum.model.UriViews;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш словарей app и uri в памяти процесса. Пары имя-идентификатор неизменны,
+ * поэтому кэш только пополняется и не требует инвалидации.
+ */
+@Component
+@RequiredArgsConstructor
+public class HitDictionary {
+    private static final int WARM_BATCH_SIZE = 1000;
+
+    private final HitDictionaryRepository hitDictionaryRepository;
+    private final Dictionary apps = new Dictionary(Table.APPS);
+    private final Dictionary uris = new Dictionary(Table.URIS);
+
+    public void resolve(List<Hit> hits) {
+        Map<String, Integer> appIds = apps.idsOf(hits.stream().map(Hit::getApp).toList(), true);
+        Map<String, Integer> uriIds = uris.idsOf(hits.stream().map(Hit::getUri).toList(), true);
+        for (Hit hit : hits) {
+            hit.setAppId(appIds.get(hit.getApp()));
+            hit.setUriId(uriIds.get(hit.getUri()));
+        }
+    }
+
+    public List<Integer> findUriIds(Collection<String> names) {
+        return List.copyOf(uris.idsOf(names, false).values());
+    }
+
+    public Integer findAppId(String name) {
+        return apps.idsOf(List.of(name), false).get(name);
+    }
+
+    public List<StatsDto> toStats(List<HitCount> counts) {
+        Map<Integer, String> appNames = apps.namesOf(counts.stream().map(HitCount::appId).toList());
+        Map<Integer, String> uriNames = uris.namesOf(counts.stream().map(HitCount::uriId).toList());
+        List<StatsDto> stats = new ArrayList<>(counts.size());
+        for (HitCount count : counts) {
+            stats.add(new StatsDto(appNames.get(count.appId()), uriNames.get(count.uriId()), count.hits()));
+        }
+        return stats;
+    }
+
+    public StatsDto toStats(HitCount count) {
+        return new StatsDto(appName(count.appId()), uriName(count.uriId()), count.hits());
+    }
+
+    public List<ViewsDto> toViews(List<UriViews> views) {
+        Map<Integer, String> appNames = apps.namesOf(views.stream().map(UriViews::appId).toList());
+        Map<Integer, String> uriNames = uris.namesOf(views.stream().map(UriViews::uriId).toList());
+        List<ViewsDto> result = new ArrayList<>(views.size());
+        for (UriViews view : views) {
+            result.add(new ViewsDto(appNames.get(view.appId()), uriNames.get(view.uriId()), view.views()));
+        }
+        return result;
+    }
+
+    /**
+     * Загружает пачками имена, которых еще нет в кэше, чтобы первые запросы после старта не ходили в базу.
+     */
+    public void warm(Collection<Integer> appIds, Collection<Integer> uriIds) {
+        apps.warm(appIds);
+        uris.warm(uriIds);
+    }
+
+    public String appName(Integer id) {
+        return apps.nameOf(id);
+    }
+
+    public String uriName(Integer id) {
+        return uris.nameOf(id);
+    }
+
+    private class Dictionary {
+        private final Table table;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+        Dictionary(Table table) {
+            this.table = table;
+        }
+
+        Map<String, Integer> idsOf(Collection<String> values, boolean create) {
+            Map<String, Integer> result = new HashMap<>();
+            Set<String> missing = new HashSet<>();
+            for (String value : values) {
+                Integer id = ids.get(value);
+                if (id != null) {
+                    result.put(value, id);
+                } else {
+                    missing.add(value);
+                }
+            }
+            if (!missing.isEmpty()) {
+                Map<String, Integer> loaded = create
+                        ? hitDictionaryRepository.saveAll(table, missing)
+                        : hitDictionaryRepository.findIds(table, missing);
+                loaded.forEach(this::put);
+                result.putAll(loaded);
+            }
+            return result;
+        }
+
+        Map<Integer, String> namesOf(Collection<Integer> values) {
+            Map<Integer, String> result = new HashMap<>();
+            Set<Integer> missing = new HashSet<>();
+            for (Integer value : values) {
+                String name = names.get(value);
+                if (name != null) {
+                    result.put(value, name);
+                } else {
+                    missing.add(value);
+                }
+            }
+            if (!missing.isEmpty()) {
+                Map<Integer, String> loaded = hitDictionaryRepository.findNames(table, missing);
+                loaded.forEach((id, name) -> put(name, id));
+                result.putAll(loaded);
+            }
+            return result;
+        }
+
+        String nameOf(Integer id) {
+            String name = names.get(id);
+            return name != null ? name : namesOf(List.of(id)).get(id);
+        }
+
+        void warm(Collection<Integer> values) {
+            List<Integer> missing = values.stream()
+                    .filter(id -> !names.containsKey(id))
+                    .distinct()
+                    .toList();
+            for (int from = 0; from < missing.size(); from += WARM_BATCH_SIZE) {
+                namesOf(missing.subList(from, Math.min(from + WARM_BATCH_SIZE, missing.size())));
+            }
+        }
+
+        private void put(String name, Integer id) {
+            ids.put(name, id);
+            names.put(id, name);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.practicum.dal.HitFirstSeenRepository;
+import ru.practicum.model.Hit;
+import ru.practicum.model.HitCount;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Service
+@RequiredArgsConstructor
+public class HitFirstSeenService {
+    static final String BACKFILL_MIGRATION = "hit-first-seen";
+
+    private final HitFirstSeenRepository hitFirstSeenRepository;
+    private final HitBackfillRunner hitBackfillRunner;
+    private volatile boolean backfilled;
+
+    @Value("${stats.first-seen.backfill-chunk-size:10000}")
+    private int backfillChunkSize;
+
+    public void addAll(List<Hit> hits) {
+        hitFirstSeenRepository.addAll(hits);
+    }
+
+    public boolean isReady() {
+        return backfilled;
+    }
+
+    public void findUniqueStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                Consumer<HitCount> consumer) {
+        hitFirstSeenRepository.findUniqueStats(start, end, uriIds, consumer);
+    }
+
+    @Scheduled(fixedDelayString = "${stats.migration.interval-ms:1000}")
+    public void backfill() {
+        if (backfilled) {
+            return;
+        }
+        backfilled = hitBackfillRunner.runChunk(BACKFILL_MIGRATION, backfillChunkSize, hitFirstSeenRepository::addAll);
+    }
+}
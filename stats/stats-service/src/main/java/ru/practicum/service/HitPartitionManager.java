@@ -0,0 +1,83 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.dal.HitPartitionRepository;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Создает помесячные секции hits заранее и удаляет секции старше срока хранения целиком.
+ * При stats.retention.months = 0 данные хранятся бессрочно.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitPartitionManager {
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'hits_p'yyyy_MM");
+
+    private final HitPartitionRepository hitPartitionRepository;
+
+    @Value("${stats.partitions.months-ahead:2}")
+    private int monthsAhead;
+
+    @Value("${stats.retention.months:0}")
+    private int retentionMonths;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${stats.partitions.cron:0 5 * * * *}")
+    public synchronized void maintain() {
+        LocalDate currentMonth = LocalDate.now().with(TemporalAdjusters.firstDayOfMonth());
+        LocalDate cutoff = retentionMonths > 0 ? currentMonth.minusMonths(retentionMonths) : LocalDate.MIN;
+
+        Set<String> existing = new HashSet<>(hitPartitionRepository.findPartitionNames());
+        Set<LocalDate> months = new TreeSet<>(hitPartitionRepository.findDefaultMonths());
+        for (int i = 0; i <= monthsAhead; i++) {
+            months.add(currentMonth.plusMonths(i));
+        }
+        for (LocalDate month : months) {
+            String name = PARTITION_NAME.format(month);
+            if (month.isBefore(cutoff) || existing.contains(name)) {
+                continue;
+            }
+            try {
+                hitPartitionRepository.createPartition(name, month, month.plusMonths(1));
+                log.info("Создана секция {}", name);
+            } catch (RuntimeException e) {
+                log.error("Не удалось создать секцию {}: {}", name, e.getMessage());
+            }
+        }
+
+        if (retentionMonths > 0) {
+            dropExpired(List.copyOf(existing), cutoff);
+        }
+    }
+
+    private void dropExpired(List<String> partitions, LocalDate cutoff) {
+        for (String name : partitions) {
+            LocalDate month;
+            try {
+                month = LocalDate.parse(name + "_01", DateTimeFormatter.ofPattern("'hits_p'yyyy_MM_dd"));
+            } catch (DateTimeParseException e) {
+                continue;
+            }
+            if (month.isBefore(cutoff)) {
+                hitPartitionRepository.dropPartition(name);
+                log.info("Удалена секция {} по сроку хранения", name);
+            }
+        }
+        hitPartitionRepository.deleteBefore(cutoff.atStartOfDay());
+    }
+}
@@ -0,0 +1,171 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.dal.HitSketchRepository;
+import ru.practicum.model.Hit;
+import ru.practicum.model.HitCount;
+import ru.practicum.model.IpAddresses;
+import ru.practicum.sketch.HyperLogLog;
+import ru.practicum.sketch.SketchKey;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static ru.practicum.model.TimeBuckets.ceil;
+
+/**
+ * Почасовые HyperLogLog-скетчи уникальных ip по (app, uri). Новые хиты копятся в памяти и периодически
+ * сливаются в hit_sketches; при запросе скетчи за целые часы объединяются, а неполные часы по краям
+ * диапазона добираются из сырых строк. В скетч добавляются байты адреса.
+ * <p>
+ * Буфер живет только в памяти. После каждого сброса в миграции hit-sketches-recovery отмечается, до какого id
+ * хиты уже попали в hit_sketches, с отставанием на один сброс, чтобы не пропустить транзакции, еще не
+ * завершенные к его началу. При старте хиты после этой отметки добавляются в скетчи повторно: слияние
+ * HyperLogLog идемпотентно, поэтому после падения теряются только хиты из транзакций записи дольше
+ * интервала сброса.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HitSketchService {
+    static final String BACKFILL_MIGRATION = "hit-sketches";
+    static final String RECOVERY_MIGRATION = "hit-sketches-recovery";
+
+    private final HitSketchRepository hitSketchRepository;
+    private final HitBackfillRunner hitBackfillRunner;
+    private final ReadWriteLock bufferLock = new ReentrantReadWriteLock();
+    private volatile Map<SketchKey, HyperLogLog> pending = new ConcurrentHashMap<>();
+    private volatile Map<SketchKey, HyperLogLog> flushing = Map.of();
+    private volatile boolean backfilled;
+    private long flushedUpTo;
+
+    @Value("${stats.sketch.backfill-chunk-size:10000}")
+    private int backfillChunkSize;
+
+    @PostConstruct
+    public void recover() {
+        hitBackfillRunner.reopen(RECOVERY_MIGRATION);
+    }
+
+    public void addAll(List<Hit> hits) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addToBuffer(hits);
+                }
+            });
+        } else {
+            addToBuffer(hits);
+        }
+    }
+
+    public boolean isReady() {
+        return backfilled;
+    }
+
+    public List<HitCount> findUniqueStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        LocalDateTime firstHour = ceil(start, ChronoUnit.HOURS);
+        LocalDateTime lastHour = end.truncatedTo(ChronoUnit.HOURS);
+
+        Map<AppUri, HyperLogLog> merged = new HashMap<>();
+        hitSketchRepository.forEachSketch(firstHour, lastHour, uriIds, (appId, uriId, sketch) ->
+                merged.computeIfAbsent(new AppUri(appId, uriId), key -> new HyperLogLog()).merge(sketch));
+        for (Map<SketchKey, HyperLogLog> buffer : List.of(flushing, pending)) {
+            buffer.forEach((key, sketch) -> {
+                if (!key.bucket().isBefore(firstHour) && key.bucket().isBefore(lastHour)
+                        && (uriIds == null || uriIds.isEmpty() || uriIds.contains(key.uriId()))) {
+                    merged.computeIfAbsent(new AppUri(key.appId(), key.uriId()), k -> new HyperLogLog()).merge(sketch);
+                }
+            });
+        }
+        hitSketchRepository.forEachDistinctIp(start, firstHour, lastHour, end, uriIds, (appId, uriId, ip) ->
+                merged.computeIfAbsent(new AppUri(appId, uriId), key -> new HyperLogLog()).add(IpAddresses.toBytes(ip)));
+
+        return merged.entrySet().stream()
+                .map(entry -> new HitCount(entry.getKey().appId(), entry.getKey().uriId(), entry.getValue().estimate()))
+                .sorted(Comparator.comparing(HitCount::hits).reversed())
+                .toList();
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${stats.sketch.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        long lastHitId = hitBackfillRunner.findLastHitId();
+        bufferLock.writeLock().lock();
+        try {
+            flushing = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            bufferLock.writeLock().unlock();
+        }
+        try {
+            if (!flushing.isEmpty()) {
+                hitSketchRepository.mergeAll(flushing);
+                log.debug("Сохранено скетчей уникальных посетителей: {}", flushing.size());
+            }
+            hitBackfillRunner.advance(RECOVERY_MIGRATION, flushedUpTo);
+            flushedUpTo = lastHitId;
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сохранить скетчи, повтор при следующем сбросе: {}", e.getMessage());
+            bufferLock.readLock().lock();
+            try {
+                flushing.forEach((key, sketch) ->
+                        pending.computeIfAbsent(key, k -> new HyperLogLog()).merge(sketch));
+            } finally {
+                bufferLock.readLock().unlock();
+            }
+        } finally {
+            flushing = Map.of();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.migration.interval-ms:1000}")
+    public void backfill() {
+        if (backfilled) {
+            return;
+        }
+        backfilled = hitBackfillRunner.runChunk(BACKFILL_MIGRATION, backfillChunkSize, this::mergeHits)
+                && hitBackfillRunner.runChunk(RECOVERY_MIGRATION, backfillChunkSize, this::mergeHits);
+    }
+
+    private void mergeHits(List<Hit> hits) {
+        Map<SketchKey, HyperLogLog> sketches = new HashMap<>();
+        hits.forEach(hit -> sketches.computeIfAbsent(keyOf(hit), key -> new HyperLogLog())
+                .add(IpAddresses.toBytes(hit.getIp())));
+        hitSketchRepository.mergeAll(sketches);
+    }
+
+    private void addToBuffer(List<Hit> hits) {
+        bufferLock.readLock().lock();
+        try {
+            for (Hit hit : hits) {
+                pending.computeIfAbsent(keyOf(hit), key -> new HyperLogLog()).add(IpAddresses.toBytes(hit.getIp()));
+            }
+        } finally {
+            bufferLock.readLock().unlock();
+        }
+    }
+
+    private static SketchKey keyOf(Hit hit) {
+        return new SketchKey(hit.getUriId(), hit.getAppId(), hit.getTimestamp().truncatedTo(ChronoUnit.HOURS));
+    }
+
+    private record AppUri(int appId, int uriId) {
+    }
+}
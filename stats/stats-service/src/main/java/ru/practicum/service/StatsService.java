@@ -2,13 +2,29 @@ package ru.practicum.service;
 
 import ru.practicum.HitDto;
 import ru.practicum.StatsDto;
+import ru.practicum.TopStatsDto;
+import ru.practicum.ViewsChangesDto;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
 
     HitDto create(HitDto hitDto);
 
-    Collection<StatsDto> getStats(String start, String end, List<String> uris, Boolean unique);
+    long createAll(Iterator<HitDto> hits);
+
+    long createAll(Iterator<HitDto> hits, String source, long firstSequence);
+
+    Collection<StatsDto> getStats(String start, String end, List<String> uris, Boolean unique,
+                                   Boolean approx);
+
+    List<TopStatsDto> getTopStats(int n, int windowMinutes);
+
+    ViewsChangesDto getViewChanges(String cursor, String app, int limit);
+
+    void streamStats(String start, String end, List<String> uris, Boolean unique, Boolean approx,
+                     Consumer<StatsDto> consumer);
 }
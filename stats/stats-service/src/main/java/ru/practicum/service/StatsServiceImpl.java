@@ -3,37 +3,179 @@ package ru.practicum.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.HitDto;
 import ru.practicum.StatsDto;
+import ru.practicum.TopStatsDto;
+import ru.practicum.ViewsChangesDto;
+import ru.practicum.dal.HitBatchRepository;
+import ru.practicum.dal.HitRollupRepository;
+import ru.practicum.dal.HitSourceRepository;
 import ru.practicum.dal.StatsRepository;
+import ru.practicum.dal.UriViewsRepository;
 import ru.practicum.exception.ValidationException;
 import ru.practicum.mapper.HitMapper;
 import ru.practicum.model.Hit;
+import ru.practicum.model.HitCount;
+import ru.practicum.model.IpAddresses;
+import ru.practicum.model.UriViews;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static ru.practicum.mapper.HitMapper.toHitDto;
+import static ru.practicum.model.TimeBuckets.ceil;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class StatsServiceImpl implements StatsService {
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final int MAX_VIEW_CHANGES = 10_000;
+
     private final StatsRepository statsRepository;
+    private final HitBatchRepository hitBatchRepository;
+    private final HitRollupRepository hitRollupRepository;
+    private final HitSketchService hitSketchService;
+    private final HitFirstSeenService hitFirstSeenService;
+    private final HitDictionary hitDictionary;
+    private final TopUriService topUriService;
+    private final HitSourceRepository hitSourceRepository;
+    private final UriViewsRepository uriViewsRepository;
 
     @Override
+    @Transactional
     public HitDto create(HitDto hitDto) {
         log.info("Creating hit: {}", hitDto);
-        Hit hit = HitMapper.toHit(hitDto);
+        Hit hit = normalizeIp(HitMapper.toHit(validateHit(hitDto)));
+        hitDictionary.resolve(List.of(hit));
         Hit savedHit = statsRepository.save(hit);
+        hitRollupRepository.addAll(List.of(savedHit));
+        hitFirstSeenService.addAll(List.of(savedHit));
+        hitSketchService.addAll(List.of(savedHit));
+        topUriService.addAll(List.of(savedHit));
         log.info("Created hit: {}", savedHit);
         return toHitDto(savedHit);
     }
 
     @Override
-    public Collection<StatsDto> getStats(String start, String end, List<String> uris, Boolean unique) {
+    @Transactional
+    public long createAll(Iterator<HitDto> hits) {
+        long count = 0;
+        List<Hit> chunk = new ArrayList<>(INSERT_BATCH_SIZE);
+        while (hits.hasNext()) {
+            chunk.add(normalizeIp(HitMapper.toBatchHit(validateHit(hits.next()))));
+            if (chunk.size() == INSERT_BATCH_SIZE) {
+                count += saveChunk(chunk);
+                chunk.clear();
+            }
+        }
+        count += saveChunk(chunk);
+        log.info("Сохранено хитов пачкой: {}", count);
+        return count;
+    }
+
+    /**
+     * Пачка из журнала клиента: хиты с номерами не больше уже сохраненного для source пропускаются,
+     * поэтому повторная отправка после сбоя не создает дубликатов.
+     */
+    @Override
+    @Transactional
+    public long createAll(Iterator<HitDto> hits, String source, long firstSequence) {
+        if (source.isBlank() || source.length() > 64 || firstSequence < 1) {
+            throw new ValidationException("Некорректный источник или номер пачки хитов: " + source + ", "
+                    + firstSequence);
+        }
+        long lastSequence = hitSourceRepository.lockLastSequence(source);
+        if (firstSequence > lastSequence + 1) {
+            log.warn("Пропуск в номерах хитов источника {}: ожидался {}, получен {}",
+                    source, lastSequence + 1, firstSequence);
+        }
+        long skipped = 0;
+        while (firstSequence + skipped <= lastSequence && hits.hasNext()) {
+            hits.next();
+            skipped++;
+        }
+        long count = createAll(hits);
+        if (skipped + count > 0) {
+            hitSourceRepository.updateLastSequence(source, firstSequence + skipped + count - 1);
+        }
+        if (skipped > 0) {
+            log.info("Пропущено повторно отправленных хитов источника {}: {}", source, skipped);
+        }
+        return count;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Collection<StatsDto> getStats(String start, String end, List<String> uris, Boolean unique,
+                                          Boolean approx) {
+        List<HitCount> counts = new ArrayList<>();
+        countHits(start, end, uris, unique, approx, counts::add);
+        return hitDictionary.toStats(counts);
+    }
+
+    @Override
+    public List<TopStatsDto> getTopStats(int n, int windowMinutes) {
+        return topUriService.findTop(n, windowMinutes);
+    }
+
+    /**
+     * Курсор имеет вид changed:appId:uriId и указывает на последнюю выданную строку;
+     * пустой курсор означает выдачу всех счетчиков с начала.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ViewsChangesDto getViewChanges(String cursor, String app, int limit) {
+        if (limit < 1 || limit > MAX_VIEW_CHANGES) {
+            throw new ValidationException("Размер пачки просмотров должен быть от 1 до " + MAX_VIEW_CHANGES);
+        }
+        String[] position = cursor == null || cursor.isBlank() ? new String[]{"0", "0", "0"} : cursor.split(":");
+        if (position.length != 3 || !position[0].matches("\\d{1,20}")) {
+            throw new ValidationException("Некорректный курсор просмотров: " + cursor);
+        }
+        int afterAppId;
+        int afterUriId;
+        try {
+            afterAppId = Integer.parseInt(position[1]);
+            afterUriId = Integer.parseInt(position[2]);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Некорректный курсор просмотров: " + cursor);
+        }
+        String horizon = uriViewsRepository.findHorizon();
+        Integer appId = null;
+        if (app != null) {
+            appId = hitDictionary.findAppId(app);
+            if (appId == null) {
+                return new ViewsChangesDto(List.of(), horizon + ":0:0", false);
+            }
+        }
+        List<UriViews> changes = uriViewsRepository.findChanges(position[0], afterAppId, afterUriId, horizon,
+                appId, limit);
+        if (changes.size() < limit) {
+            return new ViewsChangesDto(hitDictionary.toViews(changes), horizon + ":0:0", false);
+        }
+        UriViews last = changes.get(changes.size() - 1);
+        return new ViewsChangesDto(hitDictionary.toViews(changes),
+                last.changed() + ":" + last.appId() + ":" + last.uriId(), true);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamStats(String start, String end, List<String> uris, Boolean unique, Boolean approx,
+                            Consumer<StatsDto> consumer) {
+        countHits(start, end, uris, unique, approx, count -> consumer.accept(hitDictionary.toStats(count)));
+    }
+
+    private void countHits(String start, String end, List<String> uris, boolean unique, boolean approx,
+                           Consumer<HitCount> consumer) {
         if (start == null || end == null) {
             throw new ValidationException("Дата не может быть пустой");
         }
@@ -43,11 +185,59 @@ public class StatsServiceImpl implements StatsService {
         if (startTime.isAfter(endTime)) {
             throw new ValidationException("Дата начала должна быть раньше даты окончания");
         }
-        if (unique) {
-            return statsRepository.findUniqueStatsByUrisAndTimestampBetween(startTime, endTime, uris);
+        List<Integer> uriIds = null;
+        if (uris != null && !uris.isEmpty()) {
+            uriIds = hitDictionary.findUriIds(uris);
+            if (uriIds.isEmpty()) {
+                return;
+            }
+        }
+
+        if (unique && approx && hitSketchService.isReady()
+                && ceil(startTime, ChronoUnit.HOURS).isBefore(endTime.truncatedTo(ChronoUnit.HOURS))) {
+            hitSketchService.findUniqueStats(startTime, endTime, uriIds).forEach(consumer);
+        } else if (unique && hitFirstSeenService.isReady()) {
+            hitFirstSeenService.findUniqueStats(startTime, endTime, uriIds, consumer);
+        } else if (unique) {
+            try (Stream<HitCount> counts = statsRepository.findUniqueStatsByUrisAndTimestampBetween(
+                    startTime, endTime, uriIds)) {
+                counts.forEach(consumer);
+            }
         } else {
-            return statsRepository.findStatsByUrisAndTimestampBetween(startTime, endTime, uris);
+            hitRollupRepository.findStats(startTime, endTime, uriIds, consumer);
+        }
+    }
+
+    private int saveChunk(List<Hit> chunk) {
+        hitDictionary.resolve(chunk);
+        int saved = hitBatchRepository.saveAll(chunk);
+        hitRollupRepository.addAll(chunk);
+        hitFirstSeenService.addAll(chunk);
+        List<Hit> savedHits = List.copyOf(chunk);
+        hitSketchService.addAll(savedHits);
+        topUriService.addAll(savedHits);
+        return saved;
+    }
+
+    private Hit normalizeIp(Hit hit) {
+        try {
+            hit.setIp(IpAddresses.normalize(hit.getIp()));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException(e.getMessage());
+        }
+        return hit;
+    }
+
+    private HitDto validateHit(HitDto hitDto) {
+        if (hitDto == null) {
+            throw new ValidationException("Хит не может быть пустым");
+        }
+        if (hitDto.getApp() == null || hitDto.getApp().isBlank()
+                || hitDto.getUri() == null || hitDto.getUri().isBlank()
+                || hitDto.getIp() == null || hitDto.getIp().isBlank()) {
+            throw new ValidationException("Поля app, uri и ip хита должны быть заполнены: " + hitDto);
         }
+        return hitDto;
     }
 
     private LocalDateTime parseDate(String date) {
@@ -0,0 +1,139 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.TopStatsDto;
+import ru.practicum.dal.HitRollupRepository;
+import ru.practicum.exception.ValidationException;
+import ru.practicum.model.Hit;
+import ru.practicum.sketch.SpaceSaving;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Самые посещаемые uri за последние минуты. Для каждой минуты хранится сводка Space-Saving,
+ * запрос объединяет сводки окна в памяти; при старте сводки заполняются из поминутных агрегатов,
+ * а имена попавших в них app и uri загружаются в словарь.
+ */
+@Service
+@RequiredArgsConstructor
+public class TopUriService {
+    private final HitRollupRepository hitRollupRepository;
+    private final HitDictionary hitDictionary;
+    private final ConcurrentSkipListMap<LocalDateTime, SpaceSaving> slices = new ConcurrentSkipListMap<>();
+
+    @Value("${stats.top.capacity:1000}")
+    private int capacity;
+
+    @Value("${stats.top.max-window-minutes:60}")
+    private int maxWindowMinutes;
+
+    @PostConstruct
+    void load() {
+        hitRollupRepository.forEachMinute(oldestMinute(), (appId, uriId, bucket, hits) ->
+                slices.computeIfAbsent(bucket, minute -> new SpaceSaving(capacity)).add(key(appId, uriId), hits));
+        Set<Integer> appIds = new HashSet<>();
+        Set<Integer> uriIds = new HashSet<>();
+        for (SpaceSaving slice : slices.values()) {
+            slice.forEach((key, count, error) -> {
+                appIds.add(appId(key));
+                uriIds.add(uriId(key));
+            });
+        }
+        hitDictionary.warm(appIds, uriIds);
+    }
+
+    public void addAll(List<Hit> hits) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addToSlices(hits);
+                }
+            });
+        } else {
+            addToSlices(hits);
+        }
+    }
+
+    public List<TopStatsDto> findTop(int n, int windowMinutes) {
+        if (n < 1 || n > capacity) {
+            throw new ValidationException("Параметр n должен быть от 1 до " + capacity);
+        }
+        if (windowMinutes < 1 || windowMinutes > maxWindowMinutes) {
+            throw new ValidationException("Окно должно быть от 1 до " + maxWindowMinutes + " минут");
+        }
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        Map<Long, long[]> merged = new HashMap<>();
+        long minSum = 0;
+        for (SpaceSaving slice : slices.subMap(now.minusMinutes(windowMinutes - 1), true, now, true).values()) {
+            long min = slice.minCount();
+            minSum += min;
+            slice.forEach((key, count, error) -> {
+                long[] totals = merged.computeIfAbsent(key, k -> new long[3]);
+                totals[0] += count;
+                totals[1] += count - error;
+                totals[2] += min;
+            });
+        }
+
+        long unmonitored = minSum;
+        return merged.entrySet().stream()
+                .map(entry -> {
+                    long[] totals = entry.getValue();
+                    long upper = totals[0] + unmonitored - totals[2];
+                    return new Estimate(entry.getKey(), upper, upper - totals[1]);
+                })
+                .sorted(Comparator.comparingLong(Estimate::upper).reversed())
+                .limit(n)
+                .map(estimate -> new TopStatsDto(
+                        hitDictionary.appName(appId(estimate.key())),
+                        hitDictionary.uriName(uriId(estimate.key())),
+                        estimate.upper(),
+                        estimate.error()))
+                .toList();
+    }
+
+    private void addToSlices(List<Hit> hits) {
+        LocalDateTime oldest = oldestMinute();
+        for (Hit hit : hits) {
+            LocalDateTime minute = hit.getTimestamp().truncatedTo(ChronoUnit.MINUTES);
+            if (!minute.isBefore(oldest)) {
+                slices.computeIfAbsent(minute, m -> new SpaceSaving(capacity))
+                        .add(key(hit.getAppId(), hit.getUriId()), 1);
+            }
+        }
+        slices.headMap(oldest).clear();
+    }
+
+    private LocalDateTime oldestMinute() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).minusMinutes(maxWindowMinutes - 1);
+    }
+
+    private static long key(int appId, int uriId) {
+        return (long) appId << 32 | uriId & 0xFFFFFFFFL;
+    }
+
+    private static int appId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int uriId(long key) {
+        return (int) key;
+    }
+
+    private record Estimate(long key, long upper, long error) {
+    }
+}
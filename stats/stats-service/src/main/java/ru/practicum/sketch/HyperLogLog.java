@@ -0,0 +1,122 @@
+package ru.practicum.sketch;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HyperLogLog с 2^12 регистрами. Стандартная ошибка оценки 1.04 / sqrt(4096) ≈ 1.6%,
+ * т.е. примерно в 99.7% случаев ошибка не превышает 5%; до ~10 000 уникальных значений
+ * работает линейный подсчет, и ошибка заметно меньше.
+ * Объединение скетчей (максимум по регистрам) идемпотентно, поэтому повторное слияние безопасно.
+ */
+public class HyperLogLog {
+    public static final int PRECISION = 12;
+    public static final double STANDARD_ERROR = 1.04 / Math.sqrt(1 << PRECISION);
+
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public synchronized void add(byte[] value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        byte rank = (byte) Math.min(Long.numberOfLeadingZeros(hash << PRECISION) + 1, Long.SIZE - PRECISION + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public synchronized void merge(HyperLogLog other) {
+        byte[] otherRegisters = other.snapshot();
+        for (int i = 0; i < REGISTERS; i++) {
+            if (otherRegisters[i] > registers[i]) {
+                registers[i] = otherRegisters[i];
+            }
+        }
+    }
+
+    public synchronized long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Сериализация: разреженная форма (индекс, ранг) для малых скетчей, иначе все регистры подряд.
+     */
+    public synchronized byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+        if (nonZero * 3 < REGISTERS) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 + nonZero * 3);
+            buffer.put(SPARSE);
+            for (int i = 0; i < REGISTERS; i++) {
+                if (registers[i] != 0) {
+                    buffer.putShort((short) i);
+                    buffer.put(registers[i]);
+                }
+            }
+            return buffer.array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + REGISTERS);
+        buffer.put(DENSE);
+        buffer.put(registers);
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte[] registers = new byte[REGISTERS];
+        if (buffer.get() == SPARSE) {
+            while (buffer.hasRemaining()) {
+                int index = buffer.getShort() & 0xFFFF;
+                registers[index] = buffer.get();
+            }
+        } else {
+            buffer.get(registers);
+        }
+        return new HyperLogLog(registers);
+    }
+
+    private synchronized byte[] snapshot() {
+        return registers.clone();
+    }
+
+    private static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
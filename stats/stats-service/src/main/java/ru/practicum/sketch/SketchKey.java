@@ -0,0 +1,6 @@
+package ru.practicum.sketch;
+
+import java.time.LocalDateTime;
+
+public record SketchKey(int uriId, int appId, LocalDateTime bucket) {
+}
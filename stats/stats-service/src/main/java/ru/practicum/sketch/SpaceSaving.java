@@ -0,0 +1,70 @@
+package ru.practicum.sketch;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Алгоритм Space-Saving: хранит не более capacity счетчиков. Новый ключ при заполнении вытесняет
+ * счетчик с минимальным значением и наследует его как погрешность, поэтому для любого ключа
+ * count - error <= истинное значение <= count, а погрешность не превышает total / capacity.
+ */
+public class SpaceSaving {
+    private final int capacity;
+    private final Map<Long, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(Comparator.comparingLong((Counter c) -> c.count)
+            .thenComparingLong(c -> c.key));
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public synchronized void add(long key, long increment) {
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            if (counters.size() < capacity) {
+                counter = new Counter(key, 0, 0);
+            } else {
+                Counter evicted = byCount.pollFirst();
+                counters.remove(evicted.key);
+                counter = new Counter(key, evicted.count, evicted.count);
+            }
+            counters.put(key, counter);
+        } else {
+            byCount.remove(counter);
+        }
+        counter.count += increment;
+        byCount.add(counter);
+    }
+
+    /**
+     * Верхняя граница значения для ключа, которого нет среди счетчиков.
+     */
+    public synchronized long minCount() {
+        return counters.size() < capacity || byCount.isEmpty() ? 0 : byCount.first().count;
+    }
+
+    public synchronized void forEach(CounterConsumer consumer) {
+        for (Counter counter : counters.values()) {
+            consumer.accept(counter.key, counter.count, counter.error);
+        }
+    }
+
+    @FunctionalInterface
+    public interface CounterConsumer {
+        void accept(long key, long count, long error);
+    }
+
+    private static final class Counter {
+        private final long key;
+        private long count;
+        private final long error;
+
+        private Counter(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
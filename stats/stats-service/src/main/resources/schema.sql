@@ -1,7 +1,184 @@
+CREATE TABLE IF NOT EXISTS apps (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(100) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS uris (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(100) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS stats_migrations (
+    name VARCHAR(100) PRIMARY KEY,
+    last_id BIGINT NOT NULL,
+    target_id BIGINT NOT NULL,
+    completed BOOLEAN NOT NULL
+);
+
+CREATE OR REPLACE FUNCTION stats_to_inet(value TEXT) RETURNS INET AS '
+BEGIN
+    RETURN value::inet;
+EXCEPTION WHEN others THEN
+    RETURN (''100::'' || substr(md5(value), 1, 4) || '':'' || substr(md5(value), 5, 4) || '':''
+        || substr(md5(value), 9, 4) || '':'' || substr(md5(value), 13, 4))::inet;
+END' LANGUAGE plpgsql IMMUTABLE;
+
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+               WHERE c.relname = ''hits'' AND n.nspname = current_schema() AND c.relkind = ''r'') THEN
+        ALTER TABLE hits RENAME TO hits_legacy;
+        ALTER INDEX hits_pkey RENAME TO hits_legacy_pkey;
+        ALTER SEQUENCE IF EXISTS hits_id_seq RENAME TO hits_legacy_id_seq;
+    END IF;
+END';
+
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = ''hits'' AND column_name = ''app'') THEN
+        INSERT INTO apps (name) SELECT DISTINCT app FROM hits ON CONFLICT DO NOTHING;
+        INSERT INTO uris (name) SELECT DISTINCT uri FROM hits ON CONFLICT DO NOTHING;
+        DROP INDEX IF EXISTS hits_created_idx, hits_uri_created_idx;
+        ALTER TABLE hits ADD COLUMN app_id INTEGER, ADD COLUMN uri_id INTEGER;
+        UPDATE hits h SET app_id = a.id, uri_id = u.id
+        FROM apps a, uris u
+        WHERE a.name = h.app AND u.name = h.uri;
+        ALTER TABLE hits
+            DROP COLUMN app,
+            DROP COLUMN uri,
+            ALTER COLUMN app_id SET NOT NULL,
+            ALTER COLUMN uri_id SET NOT NULL,
+            ALTER COLUMN ip TYPE INET USING stats_to_inet(ip);
+    END IF;
+END';
+
 CREATE TABLE IF NOT EXISTS hits (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    app VARCHAR(100) NOT NULL,
-    uri VARCHAR(100) NOT NULL,
-    ip VARCHAR(100) NOT NULL,
-    created TIMESTAMP WITH TIME ZONE
-);
\ No newline at end of file
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    ip INET NOT NULL,
+    created TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (id, created)
+) PARTITION BY RANGE (created);
+
+CREATE TABLE IF NOT EXISTS hits_default PARTITION OF hits DEFAULT;
+
+CREATE INDEX IF NOT EXISTS hits_created_idx ON hits (created) INCLUDE (app_id, uri_id, ip);
+
+CREATE INDEX IF NOT EXISTS hits_uri_created_idx ON hits (uri_id, created) INCLUDE (app_id, ip);
+
+DO '
+BEGIN
+    IF to_regclass(''hits_legacy'') IS NOT NULL THEN
+        INSERT INTO apps (name) SELECT DISTINCT app FROM hits_legacy ON CONFLICT DO NOTHING;
+        INSERT INTO uris (name) SELECT DISTINCT uri FROM hits_legacy ON CONFLICT DO NOTHING;
+        INSERT INTO hits (id, app_id, uri_id, ip, created)
+        SELECT l.id, a.id, u.id, stats_to_inet(l.ip), l.created
+        FROM hits_legacy l
+        JOIN apps a ON a.name = l.app
+        JOIN uris u ON u.name = l.uri
+        WHERE l.created IS NOT NULL;
+        PERFORM setval(pg_get_serial_sequence(''hits'', ''id''), COALESCE(MAX(id), 0) + 1, false) FROM hits_legacy;
+        DROP TABLE hits_legacy;
+    END IF;
+END';
+
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = ''hits_minute'' AND column_name = ''app'') THEN
+        DROP TABLE IF EXISTS hits_minute, hits_hour, hit_sketches, hit_first_seen;
+        DELETE FROM stats_migrations WHERE name IN (''hit-sketches'', ''hit-sketches-recovery'', ''hit-first-seen'');
+    END IF;
+END';
+
+DROP FUNCTION IF EXISTS stats_to_inet(TEXT);
+
+CREATE TABLE IF NOT EXISTS hits_minute (
+    uri_id INTEGER NOT NULL,
+    app_id INTEGER NOT NULL,
+    bucket TIMESTAMP WITH TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (uri_id, bucket, app_id)
+);
+
+CREATE INDEX IF NOT EXISTS hits_minute_bucket_idx ON hits_minute (bucket);
+
+CREATE TABLE IF NOT EXISTS hits_hour (
+    uri_id INTEGER NOT NULL,
+    app_id INTEGER NOT NULL,
+    bucket TIMESTAMP WITH TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (uri_id, bucket, app_id)
+);
+
+CREATE INDEX IF NOT EXISTS hits_hour_bucket_idx ON hits_hour (bucket);
+
+INSERT INTO hits_minute (uri_id, app_id, bucket, hits)
+SELECT uri_id, app_id, date_trunc('minute', created), COUNT(*)
+FROM hits
+WHERE NOT EXISTS (SELECT 1 FROM hits_minute)
+GROUP BY uri_id, app_id, date_trunc('minute', created);
+
+INSERT INTO hits_hour (uri_id, app_id, bucket, hits)
+SELECT uri_id, app_id, date_trunc('hour', created), COUNT(*)
+FROM hits
+WHERE NOT EXISTS (SELECT 1 FROM hits_hour)
+GROUP BY uri_id, app_id, date_trunc('hour', created);
+
+CREATE TABLE IF NOT EXISTS hit_sketches (
+    uri_id INTEGER NOT NULL,
+    app_id INTEGER NOT NULL,
+    bucket TIMESTAMP WITH TIME ZONE NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (uri_id, bucket, app_id)
+);
+
+CREATE INDEX IF NOT EXISTS hit_sketches_bucket_idx ON hit_sketches (bucket);
+
+INSERT INTO stats_migrations (name, last_id, target_id, completed)
+SELECT 'hit-sketches', 0, COALESCE(MAX(id), 0), COALESCE(MAX(id), 0) = 0
+FROM hits
+ON CONFLICT DO NOTHING;
+
+INSERT INTO stats_migrations (name, last_id, target_id, completed)
+SELECT 'hit-sketches-recovery', COALESCE(MAX(id), 0), COALESCE(MAX(id), 0), TRUE
+FROM hits
+ON CONFLICT DO NOTHING;
+
+CREATE TABLE IF NOT EXISTS hit_first_seen (
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    ip INET NOT NULL,
+    first_seen TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (app_id, uri_id, ip)
+);
+
+CREATE INDEX IF NOT EXISTS hit_first_seen_first_seen_idx ON hit_first_seen (first_seen, app_id, uri_id);
+
+INSERT INTO stats_migrations (name, last_id, target_id, completed)
+SELECT 'hit-first-seen', 0, COALESCE(MAX(id), 0), COALESCE(MAX(id), 0) = 0
+FROM hits
+ON CONFLICT DO NOTHING;
+
+CREATE TABLE IF NOT EXISTS hit_sources (
+    source VARCHAR(64) PRIMARY KEY,
+    last_seq BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS uri_views (
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    views BIGINT NOT NULL,
+    changed XID8 NOT NULL,
+    PRIMARY KEY (app_id, uri_id)
+);
+
+CREATE INDEX IF NOT EXISTS uri_views_changed_idx ON uri_views (changed, app_id, uri_id);
+
+INSERT INTO uri_views (app_id, uri_id, views, changed)
+SELECT app_id, uri_id, COUNT(*), pg_current_xact_id()
+FROM hit_first_seen
+WHERE NOT EXISTS (SELECT 1 FROM uri_views)
+GROUP BY app_id, uri_id;
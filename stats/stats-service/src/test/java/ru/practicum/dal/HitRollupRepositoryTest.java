@@ -0,0 +1,140 @@
+package ru.practicum.dal;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.practicum.HitDto;
+import ru.practicum.model.HitCount;
+import ru.practicum.service.HitDictionary;
+import ru.practicum.service.HitFirstSeenService;
+import ru.practicum.service.StatsService;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Счетчики из агрегатов и таблицы первых посещений должны совпадать с подсчетом по сырым хитам
+ * для диапазонов с неполными минутами и часами на краях.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class HitRollupRepositoryTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 3, 10, 0, 0);
+    private static final String APP = "ewm-main-service";
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private HitRollupRepository hitRollupRepository;
+    @Autowired
+    private StatsRepository statsRepository;
+    @Autowired
+    private HitFirstSeenService hitFirstSeenService;
+    @Autowired
+    private HitDictionary hitDictionary;
+
+    @BeforeAll
+    void saveHits() {
+        Random random = new Random(42);
+        List<HitDto> hits = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            hits.add(hit(random.nextBoolean() ? APP : "other-app",
+                    "/events/" + (1 + random.nextInt(5)),
+                    "10.0.0." + (1 + random.nextInt(30)),
+                    DAY.withHour(9).withMinute(55).plusSeconds(random.nextInt(70 * 60))));
+        }
+        for (String time : List.of("09:58:20", "10:00:00", "10:15:00", "10:59:59", "11:00:00", "11:00:40")) {
+            hits.add(hit(APP, "/events/1", "10.0.1.1", DAY.with(LocalTime.parse(time))));
+        }
+        statsService.createAll(hits.iterator());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "09:58:20, 11:00:40",
+            "09:58:20, 10:59:59",
+            "10:00:00, 11:00:00",
+            "10:15:05, 10:15:50",
+            "10:14:30, 10:16:10",
+            "09:59:59, 10:00:01",
+            "10:05:30, 10:47:10",
+            "09:00:00, 12:00:00"
+    })
+    void findStatsMatchesRawCount(String from, String to) {
+        LocalDateTime start = DAY.with(LocalTime.parse(from));
+        LocalDateTime end = DAY.with(LocalTime.parse(to));
+        for (List<Integer> uriIds : uriFilters()) {
+            List<HitCount> rollup = new ArrayList<>();
+            hitRollupRepository.findStats(start, end, uriIds, rollup::add);
+            List<HitCount> raw = statsRepository.findStatsByUrisAndTimestampBetween(start, end, uriIds);
+
+            assertFalse(raw.isEmpty());
+            assertEquals(raw.size(), rollup.size());
+            assertEquals(Set.copyOf(raw), Set.copyOf(rollup));
+        }
+    }
+
+    @ParameterizedTest
+    @Transactional(readOnly = true)
+    @CsvSource({
+            "09:58:20, 11:00:40",
+            "10:00:00, 11:00:00",
+            "10:15:05, 10:15:50",
+            "10:05:30, 10:47:10",
+            "09:00:00, 12:00:00"
+    })
+    void uniqueStatsMatchRawCount(String from, String to) {
+        LocalDateTime start = DAY.with(LocalTime.parse(from));
+        LocalDateTime end = DAY.with(LocalTime.parse(to));
+        for (List<Integer> uriIds : uriFilters()) {
+            List<HitCount> firstSeen = new ArrayList<>();
+            hitFirstSeenService.findUniqueStats(start, end, uriIds, firstSeen::add);
+            List<HitCount> raw;
+            try (Stream<HitCount> counts = statsRepository.findUniqueStatsByUrisAndTimestampBetween(
+                    start, end, uriIds)) {
+                raw = counts.toList();
+            }
+
+            assertFalse(raw.isEmpty());
+            assertEquals(raw.size(), firstSeen.size());
+            assertEquals(Set.copyOf(raw), Set.copyOf(firstSeen));
+        }
+    }
+
+    private List<List<Integer>> uriFilters() {
+        List<List<Integer>> filters = new ArrayList<>();
+        filters.add(null);
+        filters.add(hitDictionary.findUriIds(List.of("/events/1", "/events/3")));
+        return filters;
+    }
+
+    private static HitDto hit(String app, String uri, String ip, LocalDateTime timestamp) {
+        return HitDto.builder()
+                .app(app)
+                .uri(uri)
+                .ip(ip)
+                .timeStamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,115 @@
+package ru.practicum.dal;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.practicum.HitDto;
+import ru.practicum.StatsDto;
+import ru.practicum.model.HitCount;
+import ru.practicum.service.HitDictionary;
+import ru.practicum.service.HitSketchService;
+import ru.practicum.service.StatsService;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Приближенные уникальные просмотры из скетчей должны отличаться от COUNT(DISTINCT ip) по сырым хитам
+ * не больше чем на три стандартные ошибки HyperLogLog.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class HitSketchRepositoryTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 3, 10, 0, 0);
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Map<String, Integer> IPS_PER_URI = Map.of(
+            "/events/1", 2_000,
+            "/events/2", 6_000,
+            "/events/3", 15_000);
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private StatsRepository statsRepository;
+    @Autowired
+    private HitSketchService hitSketchService;
+    @Autowired
+    private HitDictionary hitDictionary;
+
+    @BeforeAll
+    void saveHits() {
+        Random random = new Random(42);
+        List<HitDto> hits = new ArrayList<>();
+        IPS_PER_URI.forEach((uri, ips) -> {
+            for (int i = 0; i < ips; i++) {
+                String ip = "10." + (i >> 16) + "." + ((i >> 8) & 0xff) + "." + (i & 0xff);
+                for (int visit = random.nextInt(3); visit >= 0; visit--) {
+                    hits.add(HitDto.builder()
+                            .app("ewm-main-service")
+                            .uri(uri)
+                            .ip(ip)
+                            .timeStamp(DAY.withHour(10).plusSeconds(random.nextInt(3 * 60 * 60)))
+                            .build());
+                }
+            }
+        });
+        statsService.createAll(hits.iterator());
+        hitSketchService.flush();
+        while (!hitSketchService.isReady()) {
+            hitSketchService.backfill();
+        }
+    }
+
+    @ParameterizedTest
+    @Transactional(readOnly = true)
+    @CsvSource({
+            "10:00:00, 13:00:00",
+            "10:00:00, 11:00:00",
+            "11:00:00, 13:00:00",
+            "10:20:00, 12:40:00"
+    })
+    void approxUniqueStatsWithinErrorBound(String from, String to) {
+        LocalDateTime start = DAY.with(LocalTime.parse(from));
+        LocalDateTime end = DAY.with(LocalTime.parse(to));
+        Map<String, Long> approx = statsService.getStats(start.format(FORMATTER), end.format(FORMATTER), null,
+                        true, true).stream()
+                .collect(Collectors.toMap(StatsDto::getUri, StatsDto::getHits));
+        Map<String, Long> exact;
+        try (Stream<HitCount> counts = statsRepository.findUniqueStatsByUrisAndTimestampBetween(start, end, null)) {
+            exact = counts.map(hitDictionary::toStats)
+                    .collect(Collectors.toMap(StatsDto::getUri, StatsDto::getHits));
+        }
+
+        assertTrue(hitSketchService.isReady());
+        assertEquals(exact.keySet(), approx.keySet());
+        exact.forEach((uri, count) -> {
+            double error = Math.abs(approx.get(uri) - count) / (double) count;
+            assertTrue(error <= 3 * HyperLogLog.STANDARD_ERROR,
+                    uri + ": " + approx.get(uri) + " вместо " + count);
+        });
+    }
+}
@@ -0,0 +1,129 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.practicum.HitDto;
+import ru.practicum.dal.StatsRepository;
+import ru.practicum.model.HitCount;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Запросы статистики за диапазон внутри одного месяца должны читать только секцию этого месяца.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "ru.practicum.service.RecordingStatementInspector")
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class HitPartitionPruningTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 10, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 5, 20, 12, 30);
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private HitPartitionManager hitPartitionManager;
+    @Autowired
+    private StatsRepository statsRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeAll
+    void saveHits() {
+        List<HitDto> hits = new ArrayList<>();
+        for (LocalDateTime time : List.of(LocalDateTime.of(2025, 4, 28, 10, 0), LocalDateTime.of(2025, 5, 12, 8, 30),
+                LocalDateTime.of(2025, 5, 15, 17, 45), LocalDateTime.of(2025, 6, 2, 9, 15))) {
+            for (int i = 0; i < 10; i++) {
+                hits.add(HitDto.builder()
+                        .app("ewm-main-service")
+                        .uri("/events/" + i)
+                        .ip("10.0.0." + (i + 1))
+                        .timeStamp(time.plusMinutes(i))
+                        .build());
+            }
+        }
+        statsService.createAll(hits.iterator());
+        hitPartitionManager.maintain();
+    }
+
+    @Test
+    void maintainMovesHitsIntoMonthlyPartitions() {
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hits_default", Long.class));
+        assertEquals(20, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hits_p2025_05", Long.class));
+    }
+
+    @Test
+    void statsQueryReadsOnlyMonthPartition() {
+        RecordingStatementInspector.clear();
+        List<HitCount> counts = statsRepository.findStatsByUrisAndTimestampBetween(START, END, null);
+
+        assertEquals(10, counts.size());
+        assertPruned(explain(countQuery()));
+    }
+
+    @Test
+    void uniqueStatsQueryReadsOnlyMonthPartition() {
+        RecordingStatementInspector.clear();
+        List<HitCount> counts = new TransactionTemplate(transactionManager).execute(status -> {
+            try (Stream<HitCount> stream = statsRepository.findUniqueStatsByUrisAndTimestampBetween(START, END, null)) {
+                return stream.toList();
+            }
+        });
+
+        assertEquals(10, counts.size());
+        assertPruned(explain(countQuery()));
+    }
+
+    private static String countQuery() {
+        return RecordingStatementInspector.statements().stream()
+                .filter(sql -> sql.contains("count("))
+                .reduce((first, second) -> second)
+                .orElseThrow();
+    }
+
+    private String explain(String sql) {
+        long parameters = sql.chars().filter(c -> c == '?').count();
+        StringBuilder plan = new StringBuilder();
+        jdbcTemplate.query("EXPLAIN " + sql, ps -> {
+            ps.setObject(1, START);
+            ps.setObject(2, END);
+            for (int i = 3; i <= parameters; i++) {
+                ps.setNull(i, Types.INTEGER);
+            }
+        }, rs -> {
+            plan.append(rs.getString(1)).append('\n');
+        });
+        return plan.toString();
+    }
+
+    private static void assertPruned(String plan) {
+        assertTrue(plan.contains("hits_p2025_05"), plan);
+        assertFalse(plan.contains("hits_default"), plan);
+        assertFalse(plan.contains("hits_p2025_04"), plan);
+        assertFalse(plan.contains("hits_p2025_06"), plan);
+    }
+}